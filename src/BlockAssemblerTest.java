@@ -0,0 +1,100 @@
+import miner.BlockAssembler;
+import model.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Armado de bloques: por fee por byte, salteando las que no entran. Con un pool grande y el bloque casi
+// lleno deja de buscar despues de MAX_CONSECUTIVE_SKIPS seguidas que no entran (o cuando no queda lugar ni
+// para la tx mas chica), en vez de recorrer todo el pool en cada template.
+public class BlockAssemblerTest {
+    private static final int POOL = 100_000;
+    // destino largo para que las grandes tengan un tamaño fijo y bastante mas que la chica
+    private static final String LONG_TO = repeat('t', 200);
+
+    public static void main(String[] args) {
+        try {
+            System.out.println("Iniciando BlockAssemblerTest...");
+
+            // una que no entra se saltea y entran las siguientes
+            Transaction big = new Transaction("big", repeat('z', 2_000), 1f, 1_000f);
+            Transaction a = new Transaction("a", "to", 1f, 1f);
+            Transaction b = new Transaction("b", "to", 1f, 0.5f);
+            BlockAssembler small = new BlockAssembler(10, a.estimateSize() + b.estimateSize() + 10);
+            small.offer(big);
+            small.offer(b);
+            small.offer(a);
+            List<Transaction> picked = small.select();
+            expect(picked.size() == 2 && picked.get(0) == a && picked.get(1) == b,
+                    "No salteo la que no entraba: " + picked.size());
+
+            // pool grande: las grandes pagan de mayor a menor, entran 10 y el resto no
+            List<Transaction> bigs = new ArrayList<>(POOL);
+            for (int i = 0; i < POOL; i++) {
+                bigs.add(new Transaction(String.format("f%06d", i), LONG_TO, 1f, POOL - i));
+            }
+            int size = bigs.get(0).estimateSize();
+            Transaction tiny = new Transaction("s", "t", 1f, 0f);
+            expect(tiny.estimateSize() * 2 < size, "La chica no es chica: " + tiny.estimateSize());
+            int nearlyFull = 10 * size + size / 2;
+
+            // la chica cerca de las primeras que no entran: se la encuentra
+            tiny.setFee(feeBetween(bigs, 510, tiny));
+            BlockAssembler near = assembler(nearlyFull, bigs, tiny);
+            picked = near.select();
+            expect(picked.size() == 11 && picked.get(10) == tiny, "No encontro la chica entre las primeras salteadas");
+
+            // la chica al fondo, despues de mas de MAX_CONSECUTIVE_SKIPS que no entran: se deja de buscar antes
+            Transaction deep = new Transaction("s", "t", 1f, 0f);
+            deep.setFee(feeBetween(bigs, BlockAssembler.MAX_CONSECUTIVE_SKIPS + 500, deep));
+            BlockAssembler far = assembler(nearlyFull, bigs, deep);
+            picked = far.select();
+            expect(picked.size() == 10 && !picked.contains(deep), "Recorrio todo el pool: " + picked.size());
+
+            // sin lugar ni para la tx mas chica posible corta enseguida
+            BlockAssembler full = assembler(10 * size + TransactionCodec.MIN_ENCODED_SIZE - 1, bigs, null);
+            expect(full.select().size() == 10, "No lleno el bloque");
+
+            long t0 = System.nanoTime();
+            int rounds = 100;
+            for (int i = 0; i < rounds; i++) {
+                far.select();
+            }
+            System.out.printf("select con %d candidatos y el bloque casi lleno: %.3f ms%n", POOL + 1,
+                    (System.nanoTime() - t0) / 1e6 / rounds);
+
+            System.out.println("TEST PASSED");
+        } catch (Exception e) {
+            System.err.println("TEST FAILED: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private static BlockAssembler assembler(int maxBytes, List<Transaction> txs, Transaction extra) {
+        BlockAssembler assembler = new BlockAssembler(BlockValidator.MAX_BLOCK_TRANSACTIONS, maxBytes);
+        for (Transaction tx : txs) {
+            assembler.offer(tx);
+        }
+        assembler.offer(extra);
+        return assembler;
+    }
+
+    // fee para que `tx` quede, por fee por byte, justo despues de la grande numero `index`
+    private static float feeBetween(List<Transaction> bigs, int index, Transaction tx) {
+        double rate = (bigs.get(index).getFeeRate() + bigs.get(index + 1).getFeeRate()) / 2;
+        return (float) (rate * tx.estimateSize());
+    }
+
+    private static String repeat(char c, int times) {
+        char[] chars = new char[times];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    private static void expect(boolean condition, String message) {
+        if (!condition)
+            throw new RuntimeException(message);
+    }
+}
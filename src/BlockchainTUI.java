@@ -69,14 +69,15 @@ public class BlockchainTUI {
             }
         }
 
-        screen.stopScreen();
+        stop();
     }
 
     public void stop() throws IOException {
         running = false;
-        isMining = false;
+        stopMining();
         if (p2pNode != null)
             p2pNode.disconnect();
+        blockchain.close();
         if (screen != null) {
             screen.stopScreen();
             screen.close();
@@ -94,11 +95,9 @@ public class BlockchainTUI {
             // Solo el nodo principal (puerto 5000) crea la oferta inicial
             if (port == 5000) {
                 logger.info("Nodo Maestro detectado (5000). Generando oferta inicial...");
-                Transaction initialTx = new Transaction(null, wallet1.getAddress(), 100.0f);
-                blockchain.createTransaction(initialTx);
-
+                // la oferta inicial es la recompensa del primer bloque (las recompensas no entran por el pool)
                 Miner initialMiner = new Miner(2.0f, "GenesisMiner");
-                blockchain.minePendingTransactions(initialMiner);
+                initialMiner.mine(blockchain, wallet1.getAddress(), 100.0f);
                 minedBlocksCount++;
 
                 // Broadcast del bloque minado para que otros nodos (si ya estan conectados) lo
@@ -211,7 +210,7 @@ public class BlockchainTUI {
 
     private void openConfigInput() {
         inputMode = "config";
-        inputPrompt = "DIFICULTAD RECOMPENSA (ej: 4 50.0):";
+        inputPrompt = "DIFICULTAD RECOMPENSA (ej: 4 50.0, 14b 50.0 en bits, auto 50.0):";
         inputBuffer = blockchain.getDifficulty() + " " + blockchain.getMiningReward();
     }
 
@@ -317,13 +316,21 @@ public class BlockchainTUI {
                 return;
             }
 
-            int difficulty = Integer.parseInt(parts[0]);
+            // "14b" = dificultad en bits, "4" = ceros hex, "auto" = reajuste por tiempo de bloque
+            String dif = parts[0].toLowerCase();
             float reward = Float.parseFloat(parts[1]);
 
-            blockchain.setDifficulty(difficulty);
+            if (dif.equals("auto")) {
+                blockchain.enableRetargeting();
+            } else if (dif.endsWith("b")) {
+                blockchain.setDifficultyBits(Integer.parseInt(dif.substring(0, dif.length() - 1)));
+            } else {
+                blockchain.setDifficulty(Integer.parseInt(dif));
+            }
             blockchain.setMiningReward(reward);
 
-            logger.info("Configuracion actualizada: Dif=" + difficulty + ", Reward=" + reward);
+            logger.info("Configuracion actualizada: Dif=" + blockchain.getDifficultyBits() + " bits"
+                    + (blockchain.isRetargeting() ? " (auto)" : "") + ", Reward=" + reward);
         } catch (Exception e) {
             logger.error("Error en configuracion: " + e.getMessage());
         }
@@ -346,38 +353,13 @@ public class BlockchainTUI {
             activeMiner = new Miner(2.0f, "TUI_Miner_" + System.currentTimeMillis());
             logger.info("Mineria iniciada con: " + activeMiner.getAddress());
 
-            Thread miningThread = new Thread(() -> {
-                while (isMining && running) {
-                    try {
-                        if (!blockchain.pendingTransactions.isEmpty()) {
-                            try {
-                                blockchain.minePendingTransactions(activeMiner);
-                                minedBlocksCount++;
-                                // El broadcast se hace automáticamente en blockchain.addBlock()
-                                updateAllWalletBalances();
-                                logger.info(
-                                        "Bloque minado y difundido. TX pendientes ahora: "
-                                                + blockchain.pendingTransactions.size());
-                            } catch (Exception e) {
-                                logger.error("Error en mineria: " + e.getMessage());
-                                e.printStackTrace();
-                            }
-                        } else {
-                            Thread.sleep(100);
-                        }
-                    } catch (InterruptedException ex) {
-                        logger.info("Thread de mineria interrumpido");
-                        break;
-                    } catch (Exception ex) {
-                        logger.error("Error en thread de mineria: " + ex.getMessage());
-                        ex.printStackTrace();
-                    }
-                }
-                logger.info("Thread de mineria terminado");
-            }, "MiningThread");
-
-            miningThread.setDaemon(false);
-            miningThread.start();
+            // el minero mantiene el proximo bloque pre-armado y arranca el siguiente apenas
+            // encuentra uno; el broadcast se hace automáticamente en blockchain.addBlock()
+            activeMiner.startMining(blockchain, block -> {
+                minedBlocksCount++;
+                updateAllWalletBalances();
+                logger.info("Bloque minado y difundido. TX pendientes ahora: " + blockchain.getPendingCount());
+            });
 
         } catch (Exception e) {
             logger.error("Error iniciando mineria: " + e.getMessage());
@@ -387,6 +369,8 @@ public class BlockchainTUI {
 
     private void stopMining() {
         isMining = false;
+        if (activeMiner != null)
+            activeMiner.stopMining();
         logger.info("Mineria detenida");
     }
 
@@ -560,13 +544,19 @@ public class BlockchainTUI {
             drawLineAt(x + 2, y + 4, "Minero: " + minerAddr, TextColor.ANSI.WHITE);
             drawLineAt(x + 2, y + 5, "Recompensa total: " + String.format("%.2f", activeMiner.getTotalMined()),
                     TextColor.ANSI.WHITE);
+            MiningStats stats = activeMiner.getStats();
+            drawLineAt(x + 2, y + 6, String.format("Tasa de hash: %.0f H/s | Progreso: %.0f%% | Descartado: %d hashes",
+                    stats.getHashRate(), stats.getProgress() * 100, stats.getDiscardedHashes()), TextColor.ANSI.WHITE);
         } else {
             drawLineAt(x + 2, y + 4, "Minero: No iniciado", TextColor.ANSI.WHITE);
             drawLineAt(x + 2, y + 5, "Recompensa total: 0.00", TextColor.ANSI.WHITE);
         }
 
-        drawLineAt(x + 2, y + 7, "TX Pendientes: " + blockchain.pendingTransactions.size(), TextColor.ANSI.MAGENTA);
-        drawLineAt(x + 2, y + 8, "Dificultad: " + blockchain.getDifficulty(), TextColor.ANSI.MAGENTA);
+        drawLineAt(x + 2, y + 7, String.format("TX Pendientes: %d | Expulsadas: %d | Vencidas: %d | Rechazadas: %d",
+                blockchain.getPendingCount(), blockchain.txPool.getEvictedCount(), blockchain.txPool.getExpiredCount(),
+                blockchain.txPool.getRejectedCount()), TextColor.ANSI.MAGENTA);
+        drawLineAt(x + 2, y + 8, "Dificultad: " + blockchain.getDifficulty() + " (" + blockchain.getDifficultyBits() + " bits)",
+                TextColor.ANSI.MAGENTA);
         drawLineAt(x + 2, y + 9, "Recompensa por bloque: " + blockchain.getMiningReward(), TextColor.ANSI.MAGENTA);
 
         drawLineAt(x + 2, y + height - 3, "Presiona [M] para " + (isMining ? "PAUSAR" : "INICIAR"),
@@ -599,7 +589,8 @@ public class BlockchainTUI {
         drawLineAt(x + 2, y + 2, "Parametros de Blockchain", TextColor.ANSI.GREEN);
         drawLineAt(x + 2, y + 3, "─────────────────────────", TextColor.ANSI.GREEN);
 
-        drawLineAt(x + 2, y + 5, "Dificultad (PoW): " + blockchain.getDifficulty(), TextColor.ANSI.WHITE);
+        drawLineAt(x + 2, y + 5, "Dificultad (PoW): " + blockchain.getDifficulty() + " (" + blockchain.getDifficultyBits()
+                + " bits" + (blockchain.isRetargeting() ? ", auto" : "") + ")", TextColor.ANSI.WHITE);
         drawLineAt(x + 2, y + 6, "Recompensa por bloque: " + blockchain.getMiningReward(), TextColor.ANSI.WHITE);
         drawLineAt(x + 2, y + 7, "Bloques en cadena: " + blockchain.getChain().size(), TextColor.ANSI.WHITE);
         drawLineAt(x + 2, y + 8, "Wallets activas: " + wallets.size(), TextColor.ANSI.WHITE);
@@ -624,9 +615,9 @@ public class BlockchainTUI {
             for (Transaction tx : block.getTransactions()) {
                 if (rowCount >= height - 5)
                     break;
-                String from = tx.fromAddress == null ? "SISTEMA" : truncate(tx.fromAddress, 8);
-                String to = truncate(tx.toAddress, 8);
-                String line = String.format("%-12s %-12s %8.2f", from, to, tx.amount);
+                String from = tx.getFromAddress() == null ? "SISTEMA" : truncate(tx.getFromAddress(), 8);
+                String to = truncate(tx.getToAddress(), 8);
+                String line = String.format("%-12s %-12s %8.2f", from, to, tx.getAmount());
                 drawLineAt(x + 2, y + 3 + rowCount, line, TextColor.ANSI.WHITE);
                 rowCount++;
             }
@@ -637,12 +628,12 @@ public class BlockchainTUI {
         // Pendiente
         drawLineAt(x + leftWidth + 4, y + 2, "De           Para         Monto", TextColor.ANSI.YELLOW);
         rowCount = 0;
-        for (Transaction tx : blockchain.pendingTransactions) {
+        for (Transaction tx : blockchain.getPendingTransactions()) {
             if (rowCount >= height - 5)
                 break;
-            String from = tx.fromAddress == null ? "SISTEMA" : truncate(tx.fromAddress, 8);
-            String to = truncate(tx.toAddress, 8);
-            String line = String.format("%-12s %-12s %8.2f", from, to, tx.amount);
+            String from = tx.getFromAddress() == null ? "SISTEMA" : truncate(tx.getFromAddress(), 8);
+            String to = truncate(tx.getToAddress(), 8);
+            String line = String.format("%-12s %-12s %8.2f", from, to, tx.getAmount());
             drawLineAt(x + leftWidth + 4, y + 3 + rowCount, line, TextColor.ANSI.WHITE);
             rowCount++;
         }
@@ -731,7 +722,7 @@ public class BlockchainTUI {
         sb.append(blockchain.getChain().size()).append("|");
         for (Wallet w : wallets.values())
             sb.append(blockchain.getBalance(w.getAddress())).append(",");
-        sb.append("|").append(blockchain.pendingTransactions.size());
+        sb.append("|").append(blockchain.getPendingCount());
         sb.append("|").append(currentTab).append("|").append(isMining);
         sb.append("|").append(logger.getLogs().size());
         // Incluye el estado del input para que se redibuje en tiempo real
@@ -744,7 +735,7 @@ public class BlockchainTUI {
         logger.info("Bloques: " + blockchain.getChain().size());
         logger.info(
                 "TX Confirmadas: " + blockchain.getChain().stream().mapToInt(b -> b.getTransactions().size()).sum());
-        logger.info("TX Pendientes: " + blockchain.pendingTransactions.size());
+        logger.info("TX Pendientes: " + blockchain.getPendingCount());
         logger.info("Dificultad: " + blockchain.getDifficulty());
         logger.info("Recompensa: " + blockchain.getMiningReward());
         logger.info("Wallets: " + wallets.size());
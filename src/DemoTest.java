@@ -12,12 +12,9 @@ public class DemoTest {
             Wallet juan = new Wallet("juan");
             Wallet pancho = new Wallet("pancho");
 
-            Transaction genesisReward = new Transaction(null, juan.getAddress(), 100.0f);
-            bc.pendingTransactions.add(genesisReward);
-            bc.txPool.addTransaction(genesisReward);
-
+            // las recompensas no entran al pool: las pone el minero en su bloque
             System.out.println("Minando bloque genesis con recompensa a juan...");
-            miner.mine(bc);
+            miner.mine(bc, juan.getAddress(), 100.0f);
 
             float juanBal = bc.getBalance(juan.getAddress());
             System.out.println("Balance juan despues del minado: " + juanBal);
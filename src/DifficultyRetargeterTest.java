@@ -0,0 +1,166 @@
+import miner.Miner;
+import model.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Reajuste de dificultad y timestamps de bloque sobre cadenas armadas a mano (sin minar: el reajuste
+// solo mira bits y timestamps). Tiene que seguir el ritmo de la cadena, sin pasar de +-MAX_STEP_BITS por
+// bloque ni salir de [MIN_BITS, MAX_BITS], y rechazar timestamps que lo puedan manipular.
+// Al reemplazar la cadena gana la de mas trabajo (no la mas larga) y cada bloque recibido tiene que
+// cumplir la dificultad del nodo, tambien con dificultad fija.
+public class DifficultyRetargeterTest {
+    private static final long T0 = 1_700_000_000_000L;
+
+    public static void main(String[] args) {
+        try {
+            System.out.println("Iniciando DifficultyRetargeterTest...");
+            long target = DifficultyRetargeter.TARGET_BLOCK_TIME_MS;
+            int window = DifficultyRetargeter.WINDOW;
+
+            // sin historia: dificultad inicial
+            List<Block> genesisOnly = chain(0, 0, 0);
+            expect("solo genesis", DifficultyRetargeter.INITIAL_BITS, DifficultyRetargeter.requiredBits(genesisOnly));
+            // un bloque todavia no da ningun intervalo medible: sigue con los bits del anterior
+            expect("un bloque", 14, DifficultyRetargeter.requiredBits(chain(1, 14, target)));
+
+            // al ritmo justo se mantiene
+            expect("al ritmo", 14, DifficultyRetargeter.requiredBits(chain(window + 5, 14, target)));
+            // el doble de rapido pide el doble de trabajo (un bit mas); el doble de lento, un bit menos
+            expect("doble de rapido", 15, DifficultyRetargeter.requiredBits(chain(window + 5, 14, target / 2)));
+            expect("doble de lento", 13, DifficultyRetargeter.requiredBits(chain(window + 5, 14, target * 2)));
+
+            // extremos: el paso queda acotado
+            expect("instantaneo", 14 + DifficultyRetargeter.MAX_STEP_BITS,
+                    DifficultyRetargeter.requiredBits(chain(window + 5, 14, 0)));
+            expect("muy lento", 14 - DifficultyRetargeter.MAX_STEP_BITS,
+                    DifficultyRetargeter.requiredBits(chain(window + 5, 14, target * 1000)));
+            expect("piso", DifficultyRetargeter.MIN_BITS,
+                    DifficultyRetargeter.requiredBits(chain(window + 5, DifficultyRetargeter.MIN_BITS, target * 1000)));
+            expect("techo", ProofOfWork.MAX_BITS,
+                    DifficultyRetargeter.requiredBits(chain(window + 5, ProofOfWork.MAX_BITS, 0)));
+
+            // solo cuenta la ventana: lo viejo (muy lento) no pesa si los ultimos WINDOW van al ritmo
+            List<Block> mixed = chain(window, 14, target * 1000);
+            extend(mixed, window + 1, 14, target);
+            expect("fuera de la ventana", 14, DifficultyRetargeter.requiredBits(mixed));
+
+            // timestamps
+            List<Block> prefix = chain(window + 5, 14, target);
+            long tip = prefix.get(prefix.size() - 1).getTimestamp().getTime();
+            long median = BlockValidator.medianTimePast(prefix);
+            List<Long> last = new ArrayList<>();
+            for (int i = 0; i < BlockValidator.MEDIAN_TIME_SPAN; i++) {
+                last.add(prefix.get(prefix.size() - 1 - i).getTimestamp().getTime());
+            }
+            Collections.sort(last);
+            if (median != last.get(last.size() / 2))
+                throw new RuntimeException("medianTimePast no es la mediana de los ultimos bloques");
+
+            long now = tip + target;
+            if (!BlockValidator.validateTimestamp(block(prefix.size(), 14, tip + target), prefix, now))
+                throw new RuntimeException("Rechaza un timestamp normal");
+            if (BlockValidator.validateTimestamp(block(prefix.size(), 14, tip - 1), prefix, now))
+                throw new RuntimeException("Acepta un timestamp anterior al bloque previo");
+            if (BlockValidator.validateTimestamp(block(prefix.size(), 14, now + BlockValidator.MAX_FUTURE_DRIFT_MS + 1),
+                    prefix, now))
+                throw new RuntimeException("Acepta un timestamp demasiado en el futuro");
+            if (!BlockValidator.validateTimestamp(block(prefix.size(), 14, now + BlockValidator.MAX_FUTURE_DRIFT_MS),
+                    prefix, now))
+                throw new RuntimeException("Rechaza un timestamp en el limite de tolerancia");
+
+            // cadena con todos los timestamps iguales: igualar al previo no alcanza, hay que superar la mediana
+            List<Block> flat = chain(window + 5, 14, 0);
+            long flatTip = flat.get(flat.size() - 1).getTimestamp().getTime();
+            if (BlockValidator.validateTimestamp(block(flat.size(), 14, flatTip), flat, flatTip))
+                throw new RuntimeException("Acepta un timestamp que no supera la mediana");
+
+            // cadena recibida con dificultad fija de 4 bits: dos bloques propios = trabajo 2 * 2^4
+            Blockchain victim = new Blockchain();
+            victim.setDifficultyBits(4);
+            Miner miner = new Miner(1f, "miner");
+            miner.mine(victim, "miner", 10f);
+            miner.mine(victim, "miner", 10f);
+            List<Block> honest = new ArrayList<>(victim.getChain());
+
+            // mas trabajo sumado (40 * 2^0) pero con bloques de 0 bits: no entra
+            victim.replaceChain(forged(honest.subList(0, 1), 40, 0));
+            expectChain(victim, honest, "Reemplazo por una cadena de bloques de 0 bits");
+            // bloques de 3 bits, por debajo de la dificultad fija del nodo, aunque sumen mas trabajo
+            victim.replaceChain(forged(honest.subList(0, 1), 40, 3));
+            expectChain(victim, honest, "Reemplazo por una cadena por debajo de la dificultad fija");
+            // mas larga pero con menos trabajo (5 * 2^2 < 2 * 2^4): tampoco, aunque el nodo acepte 2 bits
+            victim.setDifficultyBits(2);
+            victim.replaceChain(forged(honest.subList(0, 1), 5, 2));
+            expectChain(victim, honest, "Reemplazo por una cadena mas larga con menos trabajo");
+            // una con mas trabajo y valida si
+            List<Block> heavier = forged(honest, 1, 4);
+            victim.replaceChain(heavier);
+            expectChain(victim, heavier, "No reemplazo por una cadena valida con mas trabajo");
+            if (victim.getBalance("attacker") != 10f)
+                throw new RuntimeException("Balance del atacante: " + victim.getBalance("attacker"));
+            victim.close();
+
+            System.out.println("TEST PASSED");
+            System.exit(0);
+        } catch (Exception e) {
+            System.err.println("TEST FAILED: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    // genesis + `blocks` bloques con `bits` cada uno, separados `intervalMs`
+    private static List<Block> chain(int blocks, int bits, long intervalMs) {
+        List<Block> chain = new ArrayList<>();
+        chain.add(block(0, 0, T0));
+        extend(chain, blocks, bits, intervalMs);
+        return chain;
+    }
+
+    private static void extend(List<Block> chain, int blocks, int bits, long intervalMs) {
+        for (int i = 0; i < blocks; i++) {
+            long last = chain.get(chain.size() - 1).getTimestamp().getTime();
+            chain.add(block(chain.size(), bits, last + intervalMs));
+        }
+    }
+
+    private static Block block(int index, int bits, long timestampMs) {
+        Block block = new Block(index, new ArrayList<>(), "0", "miner", timestampMs);
+        block.setDifficultyBits(bits);
+        return block;
+    }
+
+    // `base` + `blocks` bloques minados con `bits`, cada uno pagando 10 a "attacker"
+    private static List<Block> forged(List<Block> base, int blocks, int bits) {
+        List<Block> chain = new ArrayList<>(base);
+        long ts = Math.max(System.currentTimeMillis(), chain.get(chain.size() - 1).getTimestamp().getTime() + 1);
+        for (int i = 0; i < blocks; i++) {
+            Block prev = chain.get(chain.size() - 1);
+            List<Transaction> txs = new ArrayList<>();
+            txs.add(new Transaction(null, "attacker", 10f));
+            Block block = new Block(chain.size(), txs, prev.getHash(), "attacker", ts + i);
+            block.setDifficultyBits(bits);
+            block.setHash(block.calculateHash());
+            while (!ProofOfWork.meetsDifficulty(block.getHash(), bits)) {
+                block.setNonce(block.getNonce() + 1);
+                block.setHash(block.calculateHash());
+            }
+            chain.add(block);
+        }
+        return chain;
+    }
+
+    private static void expectChain(Blockchain bc, List<Block> expected, String message) {
+        List<Block> actual = bc.getChain();
+        if (actual.size() != expected.size()
+                || !actual.get(actual.size() - 1).getHash().equals(expected.get(expected.size() - 1).getHash()))
+            throw new RuntimeException(message);
+    }
+
+    private static void expect(String what, int expected, int actual) {
+        if (expected != actual)
+            throw new RuntimeException(what + ": bits esperados " + expected + ", obtenidos " + actual);
+    }
+}
@@ -148,7 +148,7 @@ public class BlockchainPanel extends JPanel {
         // Información general del bloque
         detailsPanel.add(new JLabel("Hash: " + block.getHash()));
         detailsPanel.add(new JLabel("Hash Previo: " + block.getPrevHash()));
-        detailsPanel.add(new JLabel("Nonce: " + block.getNonce()));
+        detailsPanel.add(new JLabel("Nonce: " + block.getNonce() + " (extraNonce: " + block.getExtraNonce() + ")"));
         detailsPanel.add(new JLabel("Timestamp: " +
             dateFormat.format(new Date(String.valueOf(block.getTimestamp())))));
 
@@ -159,7 +159,7 @@ public class BlockchainPanel extends JPanel {
         DefaultListModel<String> txListModel = new DefaultListModel<>();
         for (Transaction tx : block.getTransactions()) {
             txListModel.addElement(String.format("De: %s -> Para: %s | Monto: %.2f",
-                tx.fromAddress, tx.toAddress, tx.amount));
+                tx.getFromAddress(), tx.getToAddress(), tx.getAmount()));
         }
         JList<String> txList = new JList<>(txListModel);
         txPanel.add(new JScrollPane(txList), BorderLayout.CENTER);
@@ -5,6 +5,7 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.text.SimpleDateFormat;
 import miner.Miner;
+import miner.MiningStats;
 import model.Block;
 import model.Blockchain;
 
@@ -92,41 +93,18 @@ public class MinerPanel extends JPanel {
             log("Iniciando proceso de mineria...");
             lastBlockCount = blockchain.getChain().size();
 
-            // Ejecutar mineria en un thread separado
-            Thread miningThread = new Thread(() -> {
-                while (isMining) {
-                    try {
-                        synchronized (blockchain) {
-                            if (!blockchain.pendingTransactions.isEmpty()) {
-                                try {
-                                    miner.mine(blockchain);
-                                    SwingUtilities.invokeLater(() -> {
-                                        log("Bloque minado exitosamente");
-                                        updateStats();
-                                    });
-                                } catch (Exception ex) {
-                                    final String error = ex.getMessage();
-                                    SwingUtilities.invokeLater(() -> log("Error minando: " + error));
-                                }
-                            } else {
-                                SwingUtilities.invokeLater(() -> log("Esperando transacciones..."));
-                            }
-                        }
-                        Thread.sleep(1000);
-                    } catch (InterruptedException ex) {
-                        Thread.currentThread().interrupt();
-                        break;
-                    }
-                }
-            });
-            miningThread.setDaemon(true);
-            miningThread.start();
+            // El minero corre en su propio thread con el proximo bloque siempre pre-armado
+            miner.startMining(blockchain, block -> SwingUtilities.invokeLater(() -> {
+                log("Bloque minado exitosamente");
+                updateStats();
+            }));
         }
     }
 
     private void stopMining(ActionEvent e) {
         if (isMining) {
             isMining = false;
+            miner.stopMining();
             miningProgress.setString("Detenido");
             log("Mineria detenida.");
         }
@@ -135,15 +113,16 @@ public class MinerPanel extends JPanel {
     private void updateStats() {
         try {
             if (miner != null) {
-                float hashRate = miner.getHashRate();
+                MiningStats stats = miner.getStats();
                 float totalReward = miner.getBalance(blockchain);
-                hashRateLabel.setText(String.format("Tasa de Hash: %.1f H/s", hashRate));
+                hashRateLabel.setText(String.format("Tasa de Hash: %.1f H/s | Ultimo bloque: %d nonces en %d ms",
+                    stats.getHashRate(), stats.getLastBlockHashes(), stats.getLastTimeToSolutionMs()));
                 rewardLabel.setText(String.format("Recompensa Total: %.2f", totalReward));
 
                 // Actualizar la barra de progreso si está minando
-                if (isMining && !blockchain.pendingTransactions.isEmpty()) {
+                if (isMining && blockchain.getPendingCount() > 0) {
                     miningProgress.setString(String.format("Minando... (%d tx pendientes)",
-                        blockchain.pendingTransactions.size()));
+                        blockchain.getPendingCount()));
                 }
             }
         } catch (Exception ex) {
@@ -153,7 +132,8 @@ public class MinerPanel extends JPanel {
 
     private void updateProgress() {
         if (isMining) {
-            int progress = (int) (Math.random() * 100);
+            // progreso estimado: hashes hechos sobre los esperados para la dificultad actual
+            int progress = (int) (miner.getStats().getProgress() * 100);
             miningProgress.setValue(progress);
         }
     }
@@ -51,7 +51,7 @@ public class TransactionPanel extends JPanel {
     }
 
     private void updateStats() {
-        int totalTx = blockchain.txPool.getValidTransactions().size();
+        int totalTx = blockchain.txPool.size();
         float totalAmount = calculateTotalAmount();
         float avgPerBlock = calculateAvgTransactionsPerBlock();
 
@@ -66,7 +66,7 @@ public class TransactionPanel extends JPanel {
         float total = 0;
         List<Transaction> transactions = blockchain.txPool.getValidTransactions();
         for (Transaction tx : transactions) {
-            total += tx.amount;
+            total += tx.getAmount();
         }
         return total;
     }
@@ -82,14 +82,14 @@ public class TransactionPanel extends JPanel {
     }
 
     private void updateTables() {
-        List<Transaction> pending = blockchain.pendingTransactions;
+        List<Transaction> pending = blockchain.getPendingTransactions();
         Object[][] pendingData = new Object[pending.size()][4];
         for (int i = 0; i < pending.size(); i++) {
             Transaction tx = pending.get(i);
             pendingData[i] = new Object[] {
-                    tx.fromAddress != null ? truncate(tx.fromAddress, 15) : "SISTEMA",
-                    truncate(tx.toAddress, 15),
-                    String.format("%.2f", tx.amount),
+                    tx.getFromAddress() != null ? truncate(tx.getFromAddress(), 15) : "SISTEMA",
+                    truncate(tx.getToAddress(), 15),
+                    String.format("%.2f", tx.getAmount()),
                     "Pendiente"
             };
         }
@@ -102,9 +102,9 @@ public class TransactionPanel extends JPanel {
         for (int i = 0; i < confirmed.size(); i++) {
             Transaction tx = confirmed.get(i);
             confirmedData[i] = new Object[] {
-                    tx.fromAddress != null ? truncate(tx.fromAddress, 15) : "SISTEMA",
-                    truncate(tx.toAddress, 15),
-                    String.format("%.2f", tx.amount),
+                    tx.getFromAddress() != null ? truncate(tx.getFromAddress(), 15) : "SISTEMA",
+                    truncate(tx.getToAddress(), 15),
+                    String.format("%.2f", tx.getAmount()),
                     "Confirmada"
             };
         }
@@ -94,13 +94,9 @@ public class WalletPanel extends JPanel {
             Wallet firstWallet = new Wallet("Principal");
             wallets.add(firstWallet);
 
-            // Crear transacción inicial y minarla
-            Transaction initialTx = new Transaction(null, firstWallet.getAddress(), 50.0f);
-            blockchain.createTransaction(initialTx);
-
-            // Minar el bloque inicial
+            // Minar el bloque inicial con la recompensa para la primera wallet
             Miner initialMiner = new Miner(2.0f, "InitialMiner");
-            blockchain.minePendingTransactions(initialMiner);
+            initialMiner.mine(blockchain, firstWallet.getAddress(), 50.0f);
 
             // Crear segunda wallet
             Wallet secondWallet = new Wallet("Secundaria");
@@ -263,7 +259,7 @@ public class WalletPanel extends JPanel {
         }
 
         // Transacciones pendientes
-        for (Transaction tx : blockchain.pendingTransactions) {
+        for (Transaction tx : blockchain.getPendingTransactions()) {
             addTransactionToTable(tx, "Pendiente");
         }
     }
@@ -282,16 +278,16 @@ public class WalletPanel extends JPanel {
     private void addTransactionToTable(Transaction tx, String status) {
         Vector<Object> row = new Vector<>();
         // Para transacciones de recompensa (minería)
-        if (tx.fromAddress == null) {
+        if (tx.getFromAddress() == null) {
             row.add("SISTEMA");
-            row.add(getAliasForAddress(tx.toAddress));
-            row.add(String.format("%.2f", tx.amount));
+            row.add(getAliasForAddress(tx.getToAddress()));
+            row.add(String.format("%.2f", tx.getAmount()));
             row.add("Recompensa de minería");
         } else {
             // Para transacciones normales
-            row.add(getAliasForAddress(tx.fromAddress));
-            row.add(getAliasForAddress(tx.toAddress));
-            row.add(String.format("%.2f", tx.amount));
+            row.add(getAliasForAddress(tx.getFromAddress()));
+            row.add(getAliasForAddress(tx.getToAddress()));
+            row.add(String.format("%.2f", tx.getAmount()));
             row.add(status);
         }
         transactionsTableModel.addRow(row);
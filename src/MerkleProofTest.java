@@ -0,0 +1,95 @@
+import model.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// Pruebas de inclusion: cada hoja prueba contra la raiz de su arbol y nada mas (otra raiz, otra hoja,
+// otra posicion o una rama adulterada no verifican). Tambien por bloque, buscando la tx por su hash.
+public class MerkleProofTest {
+    public static void main(String[] args) {
+        try {
+            System.out.println("Iniciando MerkleProofTest...");
+            Random random = new Random(13);
+
+            for (int n = 1; n <= 70; n++) {
+                List<byte[]> leaves = new ArrayList<>();
+                for (int i = 0; i < n; i++) {
+                    byte[] leaf = new byte[32];
+                    random.nextBytes(leaf);
+                    leaves.add(leaf);
+                }
+                MerkleTree tree = MerkleTree.build(leaves);
+                byte[] otherRoot = tree.getRoot();
+                otherRoot[0] ^= 1;
+
+                for (int i = 0; i < n; i++) {
+                    MerkleProof proof = tree.proof(i);
+                    if (!MerkleProof.verify(proof, tree.getRootHex()))
+                        throw new RuntimeException("La prueba no verifica: n=" + n + " i=" + i);
+                    if (MerkleProof.verify(proof, otherRoot))
+                        throw new RuntimeException("La prueba verifica contra otra raiz: n=" + n + " i=" + i);
+
+                    // otra hoja en la misma posicion
+                    byte[] fakeLeaf = leaves.get(i).clone();
+                    fakeLeaf[31] ^= 1;
+                    MerkleProof forged = new MerkleProof(fakeLeaf, i, n, proof.getSiblings());
+                    if (MerkleProof.verify(forged, tree.getRootHex()))
+                        throw new RuntimeException("Verifica una hoja que no esta: n=" + n + " i=" + i);
+
+                    // rama adulterada
+                    if (!proof.getSiblings().isEmpty()) {
+                        List<byte[]> siblings = new ArrayList<>(proof.getSiblings());
+                        byte[] tampered = siblings.get(0).clone();
+                        tampered[0] ^= 1;
+                        siblings.set(0, tampered);
+                        // con la ultima hoja impar el hermano es ella misma; adulterarlo cambia igual la raiz
+                        MerkleProof bad = new MerkleProof(leaves.get(i), i, n, siblings);
+                        if (MerkleProof.verify(bad, tree.getRootHex()))
+                            throw new RuntimeException("Verifica una rama adulterada: n=" + n + " i=" + i);
+                    }
+
+                    // posicion equivocada o cantidad de hojas que no corresponde a los niveles
+                    if (n > 1) {
+                        MerkleProof moved = new MerkleProof(leaves.get(i), (i + 1) % n, n, proof.getSiblings());
+                        if (MerkleProof.verify(moved, tree.getRootHex())
+                                && !Arrays.equals(leaves.get(i), leaves.get((i + 1) % n)))
+                            throw new RuntimeException("Verifica en otra posicion: n=" + n + " i=" + i);
+                    }
+                    MerkleProof outOfRange = new MerkleProof(leaves.get(i), n, n, proof.getSiblings());
+                    if (outOfRange.computeRoot() != null)
+                        throw new RuntimeException("Prueba fuera de rango con raiz: n=" + n);
+                    MerkleProof wrongCount = new MerkleProof(leaves.get(i), i, n * 4 + 1, proof.getSiblings());
+                    if (MerkleProof.verify(wrongCount, tree.getRootHex()))
+                        throw new RuntimeException("Verifica con otra cantidad de hojas: n=" + n);
+                }
+            }
+
+            // por bloque: la prueba de cada tx verifica contra el merkle root del bloque
+            List<Transaction> txs = new ArrayList<>();
+            for (int i = 0; i < 9; i++) {
+                Transaction tx = new Transaction(null, "addr" + i, i + 1);
+                txs.add(tx);
+            }
+            Block block = new Block(1, txs, "0", "miner");
+            for (int i = 0; i < txs.size(); i++) {
+                String hash = txs.get(i).calculateHash();
+                MerkleProof proof = block.getMerkleProof(hash);
+                if (proof == null || !MerkleProof.verify(hash, proof, block.getMerkleRoot()))
+                    throw new RuntimeException("La tx " + hash + " no prueba su inclusion en el bloque");
+                String other = txs.get((i + 1) % txs.size()).calculateHash();
+                if (MerkleProof.verify(other, proof, block.getMerkleRoot()))
+                    throw new RuntimeException("La prueba de una tx sirve para otra");
+            }
+            if (block.getMerkleProof("00") != null)
+                throw new RuntimeException("Prueba para una tx que no esta en el bloque");
+
+            System.out.println("TEST PASSED");
+        } catch (Exception e) {
+            System.err.println("TEST FAILED: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
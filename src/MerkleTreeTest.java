@@ -0,0 +1,107 @@
+import model.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// El arbol incremental (append/replace/truncate) tiene que dar siempre la misma raiz que armarlo de cero,
+// y la que da la definicion directa (pares hasheados, el ultimo impar se duplica).
+public class MerkleTreeTest {
+    public static void main(String[] args) {
+        try {
+            System.out.println("Iniciando MerkleTreeTest...");
+            Random random = new Random(12);
+
+            if (new MerkleTree().getRoot() != null || !new MerkleTree().getRootHex().isEmpty())
+                throw new RuntimeException("Un arbol vacio no tiene raiz");
+
+            // tamaños chicos, impares y potencias de dos contra la definicion
+            for (int n = 1; n <= 70; n++) {
+                List<byte[]> leaves = randomLeaves(random, n);
+                String expected = CryptoUtils.toHex(referenceRoot(leaves));
+                if (!MerkleTree.build(leaves).getRootHex().equals(expected))
+                    throw new RuntimeException("build no coincide con la definicion para n=" + n);
+                MerkleTree incremental = new MerkleTree();
+                for (byte[] leaf : leaves) {
+                    incremental.append(leaf);
+                }
+                if (!incremental.getRootHex().equals(expected))
+                    throw new RuntimeException("append no coincide con la definicion para n=" + n);
+            }
+
+            // secuencia al azar de cambios, comparando contra reconstruir de cero en cada paso
+            List<byte[]> leaves = new ArrayList<>();
+            MerkleTree tree = new MerkleTree();
+            for (int step = 0; step < 3000; step++) {
+                int op = random.nextInt(10);
+                byte[] leaf = randomLeaves(random, 1).get(0);
+                if (op < 6 || leaves.isEmpty()) {
+                    leaves.add(leaf);
+                    tree.append(leaf);
+                } else if (op < 9) {
+                    int i = random.nextInt(leaves.size());
+                    leaves.set(i, leaf);
+                    tree.replace(i, leaf);
+                } else {
+                    int n = random.nextInt(leaves.size() + 1);
+                    leaves.subList(n, leaves.size()).clear();
+                    tree.truncate(n);
+                }
+                if (tree.size() != leaves.size()
+                        || !tree.getRootHex().equals(MerkleTree.build(leaves).getRootHex()))
+                    throw new RuntimeException("Arbol incremental distinto al reconstruido en el paso " + step);
+            }
+
+            // una copia no se entera de los cambios del original (ni al reves)
+            MerkleTree original = MerkleTree.build(randomLeaves(random, 33));
+            MerkleTree copy = original.copy();
+            String before = copy.getRootHex();
+            original.replace(5, randomLeaves(random, 1).get(0));
+            original.append(randomLeaves(random, 1).get(0));
+            if (!copy.getRootHex().equals(before) || copy.size() != 33)
+                throw new RuntimeException("La copia cambio al modificar el original");
+
+            // en paralelo tiene que dar lo mismo que secuencial
+            List<byte[]> big = randomLeaves(random, 5000);
+            int threshold = MerkleTree.getParallelThreshold();
+            try {
+                MerkleTree.setParallelThreshold(Integer.MAX_VALUE);
+                String sequential = MerkleTree.build(big).getRootHex();
+                MerkleTree.setParallelThreshold(1);
+                if (!MerkleTree.build(big).getRootHex().equals(sequential))
+                    throw new RuntimeException("La raiz en paralelo no coincide con la secuencial");
+            } finally {
+                MerkleTree.setParallelThreshold(threshold);
+            }
+
+            System.out.println("TEST PASSED");
+        } catch (Exception e) {
+            System.err.println("TEST FAILED: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private static List<byte[]> randomLeaves(Random random, int count) {
+        List<byte[]> leaves = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] leaf = new byte[32];
+            random.nextBytes(leaf);
+            leaves.add(leaf);
+        }
+        return leaves;
+    }
+
+    // definicion recursiva, sin nada de lo que optimiza MerkleTree
+    private static byte[] referenceRoot(List<byte[]> level) {
+        if (level.size() == 1)
+            return level.get(0);
+        List<byte[]> parents = new ArrayList<>();
+        for (int i = 0; i < level.size(); i += 2) {
+            byte[] left = level.get(i);
+            byte[] right = i + 1 < level.size() ? level.get(i + 1) : left;
+            parents.add(CryptoUtils.sha256(left, right));
+        }
+        return referenceRoot(parents);
+    }
+}
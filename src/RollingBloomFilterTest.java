@@ -0,0 +1,107 @@
+import miner.Miner;
+import model.Blockchain;
+import model.CryptoUtils;
+import model.Transaction;
+import utils.RollingBloomFilter;
+import wallet.Wallet;
+
+import java.nio.ByteBuffer;
+
+// Filtro de Bloom rodante: nada de falsos negativos en la ventana (los ultimos perGeneration), falsos
+// positivos cerca de la tasa pedida con el filtro lleno, y lo que sale de la ventana se olvida.
+// En la blockchain: una tx ya confirmada no vuelve al pool y una nueva entra.
+public class RollingBloomFilterTest {
+    private static final int PER_GENERATION = 10_000;
+    private static final double RATE = 0.01;
+
+    public static void main(String[] args) {
+        try {
+            System.out.println("Iniciando RollingBloomFilterTest...");
+            RollingBloomFilter filter = new RollingBloomFilter(PER_GENERATION, RATE);
+
+            // varias rotaciones: despues de cada insercion, los ultimos PER_GENERATION siguen adentro
+            int total = PER_GENERATION * 5 + 123;
+            for (int i = 0; i < total; i++) {
+                filter.add(key(i));
+                if (i % 997 == 0) {
+                    for (int j = Math.max(0, i - PER_GENERATION + 1); j <= i; j++) {
+                        if (!filter.mightContain(key(j)))
+                            throw new RuntimeException("Falso negativo: clave " + j + " despues de insertar " + i);
+                    }
+                }
+            }
+
+            // falsos positivos con las dos generaciones cargadas: a lo sumo ~2x la tasa (una por generacion)
+            int probes = 100_000;
+            int falsePositives = 0;
+            for (int i = 0; i < probes; i++) {
+                if (filter.mightContain(key(1_000_000 + i)))
+                    falsePositives++;
+            }
+            double measured = (double) falsePositives / probes;
+            System.out.println("Falsos positivos: " + measured + " (pedido " + RATE + " por generacion)");
+            if (measured > 2.5 * RATE)
+                throw new RuntimeException("Demasiados falsos positivos: " + measured);
+
+            // lo mas viejo (dos generaciones atras) se olvido: lo que queda es del orden de los falsos positivos
+            int remembered = 0;
+            for (int i = 0; i < PER_GENERATION; i++) {
+                if (filter.mightContain(key(i)))
+                    remembered++;
+            }
+            if (remembered > 2.5 * RATE * PER_GENERATION)
+                throw new RuntimeException("No olvida lo que salio de la ventana: " + remembered + " de " + PER_GENERATION);
+
+            filter.clear();
+            for (int i = total - PER_GENERATION; i < total; i++) {
+                if (filter.mightContain(key(i)))
+                    throw new RuntimeException("Despues de clear sigue recordando claves");
+            }
+
+            // en la cadena
+            Blockchain bc = new Blockchain();
+            bc.setDifficultyBits(4);
+            Miner miner = new Miner(1f, "miner");
+            Wallet alice = new Wallet("alice");
+            miner.mine(bc, alice.getAddress(), 100f);
+            Transaction confirmed = alice.createTransaction("bob", 10f, bc);
+            bc.createTransaction(confirmed);
+            miner.mine(bc);
+            if (bc.txPool.contains(confirmed.getTxId()) || bc.getBalance("bob") != 10f)
+                throw new RuntimeException("La tx no quedo confirmada");
+            bc.addTransactionToPool(confirmed);
+            if (bc.txPool.contains(confirmed.getTxId()))
+                throw new RuntimeException("Una tx ya confirmada volvio al pool");
+            Transaction fresh = alice.createTransaction("bob", 10f, bc);
+            bc.addTransactionToPool(fresh);
+            if (!bc.txPool.contains(fresh.getTxId()))
+                throw new RuntimeException("Una tx nueva no entro al pool");
+            bc.close();
+
+            expectRejected(0, RATE);
+            expectRejected(PER_GENERATION, 0);
+            expectRejected(PER_GENERATION, 1);
+
+            System.out.println("TEST PASSED");
+            System.exit(0);
+        } catch (Exception e) {
+            System.err.println("TEST FAILED: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    // las claves del filtro son hashes (como un txid)
+    private static byte[] key(int i) {
+        return CryptoUtils.sha256(ByteBuffer.allocate(4).putInt(i).array());
+    }
+
+    private static void expectRejected(int perGeneration, double rate) {
+        try {
+            new RollingBloomFilter(perGeneration, rate);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        throw new RuntimeException("Acepta parametros invalidos: " + perGeneration + ", " + rate);
+    }
+}
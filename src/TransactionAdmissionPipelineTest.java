@@ -0,0 +1,191 @@
+import miner.Miner;
+import model.*;
+import wallet.Wallet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+// Pipeline de admision de punta a punta sobre una cadena real: entran las validas con saldo, y se
+// descartan (y cuentan) recompensas, repetidas, firmas adulteradas, bytes mal codificados y lo que
+// pasa del saldo. El aviso de submit corre fuera de las etapas y con la entrada llena se descarta.
+// Los caminos sincronicos (createTransaction, addTransactionToPool, addTransactionsToPool) y la validacion
+// de bloques aplican las mismas reglas de montos y saldo.
+public class TransactionAdmissionPipelineTest {
+    public static void main(String[] args) {
+        try {
+            System.out.println("Iniciando TransactionAdmissionPipelineTest...");
+            Blockchain bc = new Blockchain();
+            bc.setDifficultyBits(4);
+            Miner miner = new Miner(1f, "miner");
+            Wallet alice = new Wallet("alice");
+            Wallet carol = new Wallet("carol");
+            miner.mine(bc, alice.getAddress(), 100f);
+            miner.mine(bc, carol.getAddress(), 50f);
+            TransactionAdmissionPipeline pipeline = bc.getAdmissionPipeline();
+
+            // submit: el aviso llega en el thread de avisos, no en el de insercion
+            AtomicReference<String> callbackThread = new AtomicReference<>();
+            Transaction fromCarol = carol.createTransaction("dave", 5f, bc);
+            expect(pipeline.submit(fromCarol, tx -> callbackThread.set(Thread.currentThread().getName()), 1_000),
+                    "submit no encolo");
+            waitIdle(pipeline);
+            waitFor(() -> callbackThread.get() != null);
+            expect(bc.txPool.contains(fromCarol.getTxId()), "La tx de submit no entro al pool");
+            expect("AdmissionCallbacks".equals(callbackThread.get()), "El aviso corrio en " + callbackThread.get());
+
+            // 30 de 5 con saldo 100: entran 20, las otras 10 no tienen fondos
+            long admittedBefore = pipeline.getAdmittedCount();
+            long rejectedBefore = pipeline.getRejectedCount();
+            long duplicatesBefore = pipeline.getDuplicateCount();
+            List<Transaction> spends = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                spends.add(alice.createTransaction("bob" + i, 5f, bc));
+            }
+            for (Transaction tx : spends) {
+                expect(pipeline.offer(tx), "offer descarto con la entrada vacia");
+            }
+            waitIdle(pipeline);
+            expect(pipeline.getAdmittedCount() - admittedBefore == 20,
+                    "Admitidas " + (pipeline.getAdmittedCount() - admittedBefore) + ", esperadas 20");
+            expect(pipeline.getRejectedCount() - rejectedBefore == 10, "No se rechazaron las 10 sin saldo");
+
+            // repetidas, por objeto y por bytes
+            pipeline.offer(spends.get(0));
+            pipeline.offerEncoded(spends.get(1).encode());
+            waitIdle(pipeline);
+            expect(pipeline.getDuplicateCount() - duplicatesBefore == 2, "No se contaron las 2 repetidas");
+
+            // invalidas: recompensa, firma adulterada, bytes basura y monto no positivo
+            rejectedBefore = pipeline.getRejectedCount();
+            long poolBefore = bc.txPool.size();
+            pipeline.offer(new Transaction(null, alice.getAddress(), 1_000f));
+            Transaction tampered = carol.createTransaction("eve", 1f, bc);
+            tampered.setAmount(2f);
+            pipeline.offer(tampered);
+            pipeline.offerEncoded(new byte[] { 9, 9, 9 });
+            Transaction negative = carol.createTransaction("eve", 1f, bc);
+            negative.setAmount(-1f);
+            pipeline.offer(negative);
+            waitIdle(pipeline);
+            expect(pipeline.getRejectedCount() - rejectedBefore == 4,
+                    "Rechazadas " + (pipeline.getRejectedCount() - rejectedBefore) + ", esperadas 4");
+            expect(bc.txPool.size() == poolBefore, "Entro al pool una tx invalida");
+
+            // por bytes entra igual que por objeto
+            Transaction encoded = carol.createTransaction("frank", 1f, bc);
+            pipeline.offerEncoded(encoded.encode());
+            waitIdle(pipeline);
+            expect(bc.txPool.contains(encoded.getTxId()), "La tx recibida como bytes no entro al pool");
+
+            // entrada chica inundada: se descarta en vez de bloquear, y todo queda contado
+            TransactionAdmissionPipeline small = new TransactionAdmissionPipeline(bc, new SignatureVerifier(1), 4, 2);
+            int queued = 0;
+            for (int i = 0; i < 5_000; i++) {
+                if (small.offer(new Transaction(null, "x" + i, 1f)))
+                    queued++;
+            }
+            waitIdle(small);
+            expect(small.getShedCount() > 0 && small.getShedCount() == 5_000 - queued,
+                    "Descartadas " + small.getShedCount() + " con " + queued + " encoladas");
+            small.close();
+            expect(!small.offer(spends.get(29)), "Un pipeline cerrado sigue aceptando");
+
+            // caminos sincronicos: montos invalidos y sin saldo
+            Blockchain sync = new Blockchain();
+            sync.setDifficultyBits(4);
+            Wallet erin = new Wallet("erin");
+            miner.mine(sync, erin.getAddress(), 100f);
+            erin.getBalance(sync);
+            // sin cadena la wallet firma contra su saldo en cache (100): las dos juntas se pasan
+            Transaction first = erin.createTransaction("gus", 80f, null);
+            Transaction second = erin.createTransaction("gus", 80f, null);
+            sync.createTransaction(first);
+            expectThrows(() -> sync.addTransactionToPool(second), "Entro una tx sin saldo por addTransactionToPool");
+            expectThrows(() -> sync.createTransaction(second), "Entro una tx sin saldo por createTransaction");
+            // montos invalidos: ni el pool directo los acepta (no mira firmas, asi que el rechazo es por el monto)
+            for (float amount : new float[] { -1f, 0f, Float.NaN, Float.POSITIVE_INFINITY }) {
+                Transaction bad = new Transaction(erin.getAddress(), "gus", amount);
+                bad.setSignature(first.getSignature());
+                expect(!bad.isValid() && !sync.txPool.addTransaction(bad), "El pool acepto una tx con monto " + amount);
+            }
+            // la wallet firma un NaN (no es <= 0 ni > saldo): firma buena, monto invalido
+            Transaction signedNaN = erin.createTransaction("gus", Float.NaN, null);
+            expectThrows(() -> sync.addTransactionToPool(signedNaN), "Entro una tx firmada con monto NaN");
+            Transaction negativeFee = erin.createTransaction("gus", 1f, null);
+            negativeFee.setFee(-1f);
+            List<Transaction> batch = new ArrayList<>();
+            batch.add(second);
+            batch.add(negativeFee);
+            expect(sync.addTransactionsToPool(batch) == 0, "Entraron tx invalidas por addTransactionsToPool");
+            expect(sync.txPool.size() == 1, "El pool tiene " + sync.txPool.size() + " tx, esperada 1");
+
+            // un bloque que gasta mas de lo que hay no se acepta, aunque las firmas esten bien
+            List<Transaction> overdraft = new ArrayList<>();
+            overdraft.add(first);
+            overdraft.add(second);
+            expect(!sync.acceptBlock(mined(sync, overdraft)), "Se acepto un bloque que gasta mas que el saldo");
+            List<Transaction> withNaN = new ArrayList<>();
+            withNaN.add(signedNaN);
+            expect(!sync.acceptBlock(mined(sync, withNaN)), "Se acepto un bloque con monto NaN");
+            List<Transaction> fine = new ArrayList<>();
+            fine.add(first);
+            expect(sync.acceptBlock(mined(sync, fine)), "No se acepto un bloque con saldo suficiente");
+            expect(sync.getBalance(erin.getAddress()) == 20f, "Saldo de erin: " + sync.getBalance(erin.getAddress()));
+            expect(sync.isChainValid(), "La cadena no valida");
+            sync.close();
+
+            bc.close();
+            System.out.println("TEST PASSED");
+            System.exit(0);
+        } catch (Exception e) {
+            System.err.println("TEST FAILED: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    // bloque sobre la punta de `bc` con `txs`, minado con la dificultad que pide
+    private static Block mined(Blockchain bc, List<Transaction> txs) {
+        Block block = new Block(bc.getChain().size(), txs, bc.getLatestBlock().getHash(), "miner",
+                bc.getMinNextTimestamp());
+        int bits = bc.getDifficultyBits();
+        block.setDifficultyBits(bits);
+        block.setHash(block.calculateHash());
+        while (!ProofOfWork.meetsDifficulty(block.getHash(), bits)) {
+            block.setNonce(block.getNonce() + 1);
+            block.setHash(block.calculateHash());
+        }
+        return block;
+    }
+
+    private static void expectThrows(Runnable action, String message) {
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            return;
+        }
+        throw new RuntimeException(message);
+    }
+
+    // espera a que todo lo encolado haya salido por algun lado (admitida, rechazada, repetida o descartada)
+    private static void waitIdle(TransactionAdmissionPipeline pipeline) throws InterruptedException {
+        waitFor(() -> pipeline.getAdmittedCount() + pipeline.getRejectedCount() + pipeline.getDuplicateCount()
+                + pipeline.getShedCount() >= pipeline.getSubmittedCount());
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline)
+                throw new RuntimeException("Timeout esperando al pipeline");
+            Thread.sleep(10);
+        }
+    }
+
+    private static void expect(boolean condition, String message) {
+        if (!condition)
+            throw new RuntimeException(message);
+    }
+}
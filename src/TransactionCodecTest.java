@@ -0,0 +1,128 @@
+import model.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.security.KeyPair;
+import java.util.Arrays;
+import java.util.Base64;
+
+// Codificacion canonica: ida y vuelta sin perder nada (ni el txid ni la firma), los mismos bytes por Java
+// serialization, y los topes de tamaño iguales al codificar, al decodificar y en MAX_ENCODED_SIZE.
+public class TransactionCodecTest {
+    public static void main(String[] args) {
+        try {
+            System.out.println("Iniciando TransactionCodecTest...");
+
+            KeyPair keys = SignatureScheme.getDefault().generateKeyPair();
+            String address = KeyRegistry.addressOf(keys.getPublic());
+            Transaction tx = new Transaction(address, "destino-ñ", 12.5f, 0.25f);
+            tx.setSenderPublicKey(Base64.getEncoder().encodeToString(keys.getPublic().getEncoded()));
+            tx.signTransaction(keys);
+
+            // ida y vuelta
+            byte[] encoded = tx.encode();
+            if (encoded.length != tx.estimateSize())
+                throw new RuntimeException("estimateSize no coincide con encode: " + tx.estimateSize() + " != " + encoded.length);
+            Transaction decoded = TransactionCodec.decode(encoded);
+            if (!Arrays.equals(decoded.encode(), encoded) || !decoded.getTxId().equals(tx.getTxId()))
+                throw new RuntimeException("La tx decodificada no es la misma");
+            if (!"destino-ñ".equals(decoded.getToAddress()) || decoded.getTimestamp() != tx.getTimestamp()
+                    || decoded.getAmount() != 12.5f || decoded.getFee() != 0.25f)
+                throw new RuntimeException("Se perdieron campos al decodificar");
+            SignatureVerifier verifier = new SignatureVerifier(1);
+            try {
+                if (!verifier.verify(decoded, new KeyRegistry()))
+                    throw new RuntimeException("La firma no verifica despues de decodificar");
+                Transaction altered = TransactionCodec.decode(encoded);
+                altered.setAmount(13f);
+                if (verifier.verify(altered, new KeyRegistry()))
+                    throw new RuntimeException("Verifica una tx con el monto cambiado");
+            } finally {
+                verifier.shutdown();
+            }
+
+            // recompensa: from, clave y firma nulos
+            Transaction reward = new Transaction(null, address, 50f);
+            Transaction rewardBack = TransactionCodec.decode(reward.encode());
+            if (rewardBack.getFromAddress() != null || rewardBack.getSignature() != null
+                    || rewardBack.getSenderPublicKey() != null || !rewardBack.getTxId().equals(reward.getTxId()))
+                throw new RuntimeException("La recompensa no vuelve igual");
+
+            // dos tx con los mismos campos salvo el timestamp tienen distinto txid
+            Transaction twin = new Transaction(null, address, 50f);
+            if (twin.getTxId().equals(reward.getTxId()))
+                throw new RuntimeException("Dos tx creadas por separado comparten txid");
+
+            // Java serialization manda los mismos bytes
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(tx);
+            }
+            Transaction serialized;
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+                serialized = (Transaction) in.readObject();
+            }
+            if (!Arrays.equals(serialized.encode(), encoded))
+                throw new RuntimeException("La serializacion Java no conserva la codificacion");
+
+            // topes: el campo mas largo que entra codifica y decodifica, uno mas no
+            String longest = repeat('a', TransactionCodec.MAX_FIELD_LENGTH);
+            Transaction big = new Transaction(longest, longest, 1f);
+            big.setSignature(Base64.getEncoder().encodeToString(new byte[TransactionCodec.MAX_FIELD_LENGTH]));
+            big.setSenderPublicKey(Base64.getEncoder().encodeToString(new byte[TransactionCodec.MAX_FIELD_LENGTH]));
+            if (!TransactionCodec.isWithinLimits(big))
+                throw new RuntimeException("Campos en el tope marcados como fuera de limite");
+            byte[] bigEncoded = big.encode();
+            if (bigEncoded.length != TransactionCodec.MAX_ENCODED_SIZE)
+                throw new RuntimeException("MAX_ENCODED_SIZE no es el tamaño de la tx mas grande: "
+                        + TransactionCodec.MAX_ENCODED_SIZE + " != " + bigEncoded.length);
+            TransactionCodec.decode(bigEncoded);
+
+            Transaction tooBig = new Transaction(longest + "a", "x", 1f);
+            if (TransactionCodec.isWithinLimits(tooBig))
+                throw new RuntimeException("Campo de mas marcado dentro del limite");
+            expectRejected("encode con campo de mas", () -> tooBig.encode());
+            expectRejected("datos mas grandes que el tope",
+                    () -> TransactionCodec.decode(new byte[TransactionCodec.MAX_ENCODED_SIZE + 1]));
+
+            // entradas mal formadas
+            expectRejected("version desconocida", () -> {
+                byte[] copy = encoded.clone();
+                copy[0] = (byte) (TransactionCodec.VERSION + 1);
+                TransactionCodec.decode(copy);
+            });
+            expectRejected("truncada", () -> TransactionCodec.decode(Arrays.copyOf(encoded, encoded.length - 1)));
+            expectRejected("bytes de mas", () -> TransactionCodec.decode(Arrays.copyOf(encoded, encoded.length + 1)));
+            expectRejected("largo de campo de mas", () -> {
+                ByteBuffer forged = ByteBuffer.allocate(16);
+                forged.put(TransactionCodec.VERSION);
+                forged.putShort((short) (TransactionCodec.MAX_FIELD_LENGTH + 1));
+                TransactionCodec.decode(forged.array());
+            });
+
+            System.out.println("TEST PASSED");
+        } catch (Exception e) {
+            System.err.println("TEST FAILED: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private static void expectRejected(String what, Runnable action) {
+        try {
+            action.run();
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        throw new RuntimeException("No se rechazo: " + what);
+    }
+
+    private static String repeat(char c, int times) {
+        char[] chars = new char[times];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
@@ -0,0 +1,107 @@
+import model.*;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Medicion del mempool: con PENDING transacciones pendientes, cuanto tarda sacar las CONFIRMED de un bloque
+// mientras WRITERS threads siguen admitiendo. El pool no verifica firmas (eso es del pipeline), asi que
+// alcanza con una firma de relleno.
+// Uso: java TransactionPoolBench [pendientes] [confirmadas] [threads] [rondas]
+public class TransactionPoolBench {
+    private static final String FAKE_SIGNATURE = Base64.getEncoder().encodeToString(new byte[64]);
+
+    public static void main(String[] args) throws Exception {
+        int pending = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int confirmed = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        int writers = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+        // lo que admiten los writers durante cada ronda
+        int perWriter = 2_000;
+
+        System.out.println("Pool con " + pending + " pendientes, sacando " + confirmed + " confirmadas con "
+                + writers + " threads admitiendo (" + rounds + " rondas)");
+
+        long[] removeNs = new long[rounds];
+        for (int r = 0; r < rounds; r++) {
+            TransactionPool pool = new TransactionPool();
+            // que los writers no terminen midiendo expulsiones en vez de borrados
+            pool.setMaxEntries(pending + writers * perWriter);
+            pool.setMaxBytes(Long.MAX_VALUE);
+
+            List<Transaction> initial = newTransactions("p" + r, pending);
+            for (Transaction tx : initial) {
+                if (!pool.addTransaction(tx))
+                    throw new RuntimeException("No se pudo llenar el pool");
+            }
+            // las confirmadas salen de todo el pool, no solo de las primeras
+            List<Transaction> block = new ArrayList<>(confirmed);
+            int step = Math.max(1, pending / confirmed);
+            for (int i = 0; i < pending && block.size() < confirmed; i += step) {
+                block.add(initial.get(i));
+            }
+
+            List<List<Transaction>> incoming = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                incoming.add(newTransactions("w" + r + "-" + w, perWriter));
+            }
+            CountDownLatch start = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(writers);
+            AtomicInteger admitted = new AtomicInteger();
+            for (int w = 0; w < writers; w++) {
+                List<Transaction> mine = incoming.get(w);
+                Thread t = new Thread(() -> {
+                    try {
+                        start.await();
+                        for (Transaction tx : mine) {
+                            if (pool.addTransaction(tx))
+                                admitted.incrementAndGet();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+                t.start();
+            }
+
+            start.countDown();
+            long t0 = System.nanoTime();
+            pool.removeTransactions(block);
+            removeNs[r] = System.nanoTime() - t0;
+            done.await();
+
+            int expected = pending - confirmed + writers * perWriter;
+            if (pool.size() != expected || admitted.get() != writers * perWriter)
+                throw new RuntimeException("Pool inconsistente: size=" + pool.size() + " esperado=" + expected);
+            for (Transaction tx : block) {
+                if (pool.contains(tx.getTxId()))
+                    throw new RuntimeException("Quedo en el pool una tx confirmada: " + tx.getTxId());
+            }
+            pool.close();
+        }
+
+        // la primera mitad es calentamiento del JIT
+        List<Long> measured = new ArrayList<>();
+        for (int r = rounds / 2; r < rounds; r++) {
+            measured.add(removeNs[r]);
+        }
+        measured.sort(null);
+        System.out.printf("Sacar %d confirmadas: mediana %.2f ms, max %.2f ms (%d rondas medidas)%n", confirmed,
+                measured.get(measured.size() / 2) / 1e6, measured.get(measured.size() - 1) / 1e6, measured.size());
+        System.exit(0);
+    }
+
+    private static List<Transaction> newTransactions(String prefix, int count) {
+        List<Transaction> txs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Transaction tx = new Transaction(prefix + "-from-" + i, "to", 1.0f, (i % 100) / 10f);
+            tx.setSignature(FAKE_SIGNATURE);
+            txs.add(tx);
+        }
+        return txs;
+    }
+}
@@ -0,0 +1,162 @@
+import model.*;
+
+import java.lang.ref.WeakReference;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Mempool acotado: con el pool lleno entra una tx solo si paga mas por byte que las que expulsa, las
+// expulsadas son las mas baratas, el presupuesto (cantidad y bytes) se respeta aunque admitan varios
+// threads a la vez, y las viejas vencen por TTL. Un pool sin cerrar se puede recolectar.
+public class TransactionPoolTest {
+    // el pool no verifica firmas (eso es de la admision), alcanza con que haya una
+    private static final String SIGNATURE = Base64.getEncoder().encodeToString(new byte[64]);
+
+    public static void main(String[] args) {
+        try {
+            System.out.println("Iniciando TransactionPoolTest...");
+
+            TransactionPool pool = new TransactionPool();
+            pool.setMaxEntries(3);
+            AtomicInteger evictions = new AtomicInteger();
+            pool.setOnEvicted(evictions::incrementAndGet);
+
+            Transaction cheap = tx("a", 0.1f);
+            Transaction mid = tx("b", 0.5f);
+            Transaction rich = tx("c", 1.0f);
+            expect(pool.addTransaction(cheap) && pool.addTransaction(mid) && pool.addTransaction(rich),
+                    "No entran las primeras tres");
+            expect(!pool.addTransaction(mid), "Entra dos veces la misma tx");
+            Transaction unsigned = new Transaction("x", "y", 1f, 5f);
+            expect(!pool.addTransaction(unsigned), "Entra una tx sin firmar");
+            expect(!pool.addTransaction(new Transaction(null, "y", 1_000f)), "Entra una recompensa al pool");
+
+            // lleno: la que paga menos que todas no entra y no saca a nadie
+            expect(!pool.addTransaction(tx("d", 0.05f)), "Entra una tx mas barata que todas con el pool lleno");
+            expect(pool.size() == 3 && pool.getRejectedCount() == 1 && pool.getEvictedCount() == 0,
+                    "Rechazar una tx cambio el pool");
+
+            // la que paga mas saca a la mas barata
+            Transaction richer = tx("e", 2.0f);
+            expect(pool.addTransaction(richer), "No entra una tx que paga mas");
+            expect(!pool.contains(cheap.getTxId()) && pool.contains(mid.getTxId()) && pool.size() == 3,
+                    "No se expulso la mas barata");
+            expect(pool.getEvictedCount() == 1 && evictions.get() == 1, "No se conto o aviso la expulsion");
+
+            expect(pool.getBytes() == bytesOf(pool.getPending()), "getBytes no coincide con lo que hay en el pool");
+            pool.close();
+
+            // bytes: con el presupuesto justo para dos, entrar una tercera saca la mas barata
+            TransactionPool byBytes = new TransactionPool();
+            Transaction first = tx("f", 0.2f);
+            Transaction second = tx("g", 0.3f);
+            byBytes.setMaxBytes(first.estimateSize() + second.estimateSize());
+            expect(byBytes.addTransaction(first) && byBytes.addTransaction(second), "No entran dos en su presupuesto");
+            expect(byBytes.addTransaction(tx("h", 0.9f)), "No entra una mas cara por bytes");
+            expect(!byBytes.contains(first.getTxId()) && byBytes.getBytes() <= byBytes.getMaxBytes(),
+                    "Se paso del presupuesto de bytes");
+            Transaction huge = new Transaction("big", new String(new char[2000]).replace('\0', 'z'), 1f, 100f);
+            huge.setSignature(SIGNATURE);
+            expect(!byBytes.addTransaction(huge) && byBytes.size() == 2,
+                    "Una tx mas grande que todo el presupuesto vacio el pool");
+
+            // borrar y limpiar dejan los bytes en cero
+            byBytes.clear();
+            expect(byBytes.size() == 0 && byBytes.getBytes() == 0, "clear no dejo el pool vacio");
+            byBytes.close();
+
+            // TTL
+            TransactionPool ttl = new TransactionPool();
+            ttl.setTtlMs(50);
+            Transaction old = tx("i", 0.1f);
+            ttl.addTransaction(old);
+            Thread.sleep(100);
+            Transaction recent = tx("j", 0.1f);
+            ttl.addTransaction(recent);
+            expect(ttl.expireOld() == 1 && !ttl.contains(old.getTxId()) && ttl.contains(recent.getTxId()),
+                    "expireOld no vencio solo la vieja");
+            expect(ttl.getExpiredCount() == 1, "No se conto el vencimiento");
+            ttl.close();
+
+            // el vencimiento automatico corre en el thread compartido
+            TransactionPool swept = new TransactionPool(20);
+            swept.setTtlMs(10);
+            swept.addTransaction(tx("k", 0.1f));
+            long deadline = System.currentTimeMillis() + 2_000;
+            while (swept.size() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            expect(swept.size() == 0, "El barrido periodico no vencio la tx");
+            swept.close();
+
+            // presupuesto con varios threads admitiendo a la vez
+            TransactionPool concurrent = new TransactionPool();
+            concurrent.setMaxEntries(100);
+            int threads = 8;
+            int perThread = 500;
+            CountDownLatch start = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(threads);
+            for (int t = 0; t < threads; t++) {
+                int id = t;
+                new Thread(() -> {
+                    try {
+                        start.await();
+                        for (int i = 0; i < perThread; i++) {
+                            concurrent.addTransaction(tx("t" + id + "-" + i, (i * 7 + id) % 50 / 10f));
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }).start();
+            }
+            start.countDown();
+            done.await();
+            List<Transaction> pending = concurrent.getPending();
+            expect(concurrent.size() == 100 && pending.size() == 100, "Se paso del maximo: " + concurrent.size());
+            expect(concurrent.getBytes() == bytesOf(pending),
+                    "Bytes inconsistentes: " + concurrent.getBytes() + " != " + bytesOf(pending));
+            for (Transaction t : pending) {
+                expect(concurrent.get(t.getTxId()) == t, "Indices inconsistentes para " + t.getTxId());
+            }
+            concurrent.close();
+
+            // un pool que nadie cerro no queda retenido por el thread de barrido
+            WeakReference<TransactionPool> forgotten = new WeakReference<>(new TransactionPool(20));
+            deadline = System.currentTimeMillis() + 5_000;
+            while (forgotten.get() != null && System.currentTimeMillis() < deadline) {
+                System.gc();
+                Thread.sleep(20);
+            }
+            expect(forgotten.get() == null, "El barrido retiene un pool sin cerrar");
+
+            System.out.println("TEST PASSED");
+            System.exit(0);
+        } catch (Exception e) {
+            System.err.println("TEST FAILED: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private static Transaction tx(String from, float fee) {
+        Transaction tx = new Transaction(from, "to", 1f, fee);
+        tx.setSignature(SIGNATURE);
+        return tx;
+    }
+
+    private static long bytesOf(List<Transaction> txs) {
+        long bytes = 0;
+        for (Transaction tx : txs) {
+            bytes += tx.estimateSize();
+        }
+        return bytes;
+    }
+
+    private static void expect(boolean condition, String message) {
+        if (!condition)
+            throw new RuntimeException(message);
+    }
+}
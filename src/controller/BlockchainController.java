@@ -13,6 +13,7 @@ import network.SimpleNetworkMediator;
 import utils.Logger;
 
 public class BlockchainController {
+    private static final long SUBMIT_TIMEOUT_MS = 5_000;
     private Blockchain blockchain;
     private NetworkMediator mediator;
     private Logger logger;
@@ -52,17 +53,25 @@ public class BlockchainController {
     }
 
     /**
-     * Maneja una nueva transacción: la añade al blockchain (que validará) y la broadcastea en la red.
+     * Maneja una nueva transacción: la encola en el pipeline de admisión del blockchain (que validará
+     * fuera de este thread) y, si entra al pool, la broadcastea en la red.
+     * Si el pipeline está saturado espera hasta SUBMIT_TIMEOUT_MS antes de rechazarla.
      */
     public void handleNewTransaction(Transaction tx) {
         if (tx == null) return;
         try {
-            blockchain.createTransaction(tx);
-            logger.info("New transaction handled: " + tx.calculateHash());
-            if (mediator != null) {
-                NetworkMessage msg = new NetworkMessage(NetworkMessage.Type.TRANSACTION, tx);
-                mediator.broadcast(msg, "controller");
-            }
+            boolean queued = blockchain.getAdmissionPipeline().submit(tx, admitted -> {
+                logger.info("New transaction handled: " + admitted.getTxId());
+                if (mediator != null) {
+                    NetworkMessage msg = new NetworkMessage(NetworkMessage.Type.TRANSACTION, admitted);
+                    mediator.broadcast(msg, "controller");
+                }
+            }, SUBMIT_TIMEOUT_MS);
+            if (!queued)
+                logger.log("Failed to handle transaction: admission pipeline saturated");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.log("Failed to handle transaction: interrupted");
         } catch (Exception e) {
             logger.log("Failed to handle transaction: " + e.getMessage());
         }
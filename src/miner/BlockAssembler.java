@@ -0,0 +1,143 @@
+package miner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import model.BlockValidator;
+import model.Transaction;
+import model.TransactionCodec;
+
+// Arma el contenido de un bloque respetando un maximo de transacciones y de bytes.
+// La recompensa del minero (coinbase) va primero y la pone el minero, no sale del pool; el resto se elige
+// por fee por byte, de mayor a menor. Los candidatos viven en un TreeSet ordenado, asi que agregar o sacar una
+// transaccion cuesta O(log n) y volver a elegir solo recorre lo que entra en el bloque.
+public class BlockAssembler {
+    // por defecto, los maximos que acepta la validacion de bloques
+    public static final int DEFAULT_MAX_TRANSACTIONS = BlockValidator.MAX_BLOCK_TRANSACTIONS;
+    public static final int DEFAULT_MAX_BLOCK_BYTES = BlockValidator.MAX_BLOCK_BYTES;
+    // con el bloque casi lleno, cuantas seguidas que no entran se prueban antes de darlo por terminado:
+    // sin tope, un pool grande se recorre entero para cada template
+    public static final int MAX_CONSECUTIVE_SKIPS = 1000;
+
+    // un candidato con su orden de llegada, para desempatar fees iguales por antiguedad
+    private static class Candidate {
+        final Transaction tx;
+        final double feeRate;
+        final int size;
+        final long seq;
+
+        Candidate(Transaction tx, long seq) {
+            this.tx = tx;
+            this.feeRate = tx.getFeeRate();
+            this.size = tx.estimateSize();
+            this.seq = seq;
+        }
+    }
+
+    private static final Comparator<Candidate> PRIORITY = Comparator
+            .comparingDouble((Candidate c) -> -c.feeRate)
+            .thenComparingLong(c -> c.seq);
+
+    private final int maxTransactions;
+    private final int maxBlockBytes;
+    private final TreeSet<Candidate> queue = new TreeSet<>(PRIORITY);
+    // por identidad: dos transacciones con los mismos datos siguen siendo dos candidatos
+    private final Map<Transaction, Candidate> byTx = new IdentityHashMap<>();
+    private long nextSeq;
+
+    public BlockAssembler() {
+        this(DEFAULT_MAX_TRANSACTIONS, DEFAULT_MAX_BLOCK_BYTES);
+    }
+
+    public BlockAssembler(int maxTransactions, int maxBlockBytes) {
+        if (maxTransactions < 1 || maxBlockBytes < 1)
+            throw new IllegalArgumentException("Los limites del bloque tienen que ser positivos");
+        if (maxTransactions > BlockValidator.MAX_BLOCK_TRANSACTIONS || maxBlockBytes > BlockValidator.MAX_BLOCK_BYTES)
+            throw new IllegalArgumentException("Los limites del bloque superan los que acepta la red");
+        this.maxTransactions = maxTransactions;
+        this.maxBlockBytes = maxBlockBytes;
+    }
+
+    public synchronized void offer(Transaction tx) {
+        if (tx == null || byTx.containsKey(tx))
+            return;
+        Candidate c = new Candidate(tx, nextSeq++);
+        byTx.put(tx, c);
+        queue.add(c);
+    }
+
+    public synchronized void remove(Collection<Transaction> txs) {
+        for (Transaction tx : txs) {
+            Candidate c = byTx.remove(tx);
+            if (c != null)
+                queue.remove(c);
+        }
+    }
+
+    // deja como candidatos exactamente las transacciones de `pool`: agrega las nuevas y saca las que ya no estan.
+    // Las que siguen conservan su lugar en la cola, no se reordena todo
+    public synchronized void sync(Collection<Transaction> pool) {
+        Map<Transaction, Boolean> current = new IdentityHashMap<>();
+        for (Transaction tx : pool) {
+            current.put(tx, Boolean.TRUE);
+            offer(tx);
+        }
+        if (byTx.size() == current.size())
+            return;
+        List<Transaction> gone = new ArrayList<>();
+        for (Transaction tx : byTx.keySet()) {
+            if (!current.containsKey(tx))
+                gone.add(tx);
+        }
+        remove(gone);
+    }
+
+    // elige las transacciones del proximo bloque. Si una no entra por tamaño se sigue probando con las siguientes,
+    // hasta que no quede lugar ni para la tx mas chica posible o MAX_CONSECUTIVE_SKIPS seguidas no entren
+    public synchronized List<Transaction> select() {
+        return select(null);
+    }
+
+    // igual, con `coinbase` (la recompensa del minero) primero y contando dentro de los limites.
+    // La lista sale sin la coinbase si no hay ninguna transaccion del pool para minar
+    public synchronized List<Transaction> select(Transaction coinbase) {
+        List<Transaction> selected = new ArrayList<>();
+        int bytes = 0;
+        if (coinbase != null) {
+            selected.add(coinbase);
+            bytes += coinbase.estimateSize();
+        }
+        int skipped = 0;
+        for (Candidate c : queue) {
+            if (selected.size() >= maxTransactions || maxBlockBytes - bytes < TransactionCodec.MIN_ENCODED_SIZE)
+                break;
+            if (bytes + c.size > maxBlockBytes) {
+                if (++skipped >= MAX_CONSECUTIVE_SKIPS)
+                    break;
+                continue;
+            }
+            skipped = 0;
+            selected.add(c.tx);
+            bytes += c.size;
+        }
+        if (coinbase != null && selected.size() == 1)
+            selected.clear();
+        return selected;
+    }
+
+    public synchronized int size() {
+        return byTx.size();
+    }
+
+    public int getMaxTransactions() {
+        return maxTransactions;
+    }
+
+    public int getMaxBlockBytes() {
+        return maxBlockBytes;
+    }
+}
@@ -0,0 +1,166 @@
+package miner;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import model.Block;
+import model.Blockchain;
+import model.ChainTip;
+import model.MerkleTree;
+import model.Transaction;
+import utils.Logger;
+
+// Mantiene armado el proximo bloque candidato (coinbase del minero, transacciones elegidas por fee y merkle
+// root calculado) para que el minero no tenga que armarlo ni esperar con sleep entre un bloque y otro.
+// Un thread propio lo rearma cada vez que cambia el pool o la punta de la cadena;
+// nextTemplate() bloquea solo si todavia no hay nada para minar.
+public class BlockTemplateService {
+    private final Blockchain bc;
+    private final String minerAddress;
+    private final BlockAssembler assembler;
+    private final Logger logger;
+    private final Runnable poolListener;
+    private final Consumer<Block> tipListener;
+    private final Thread refresher;
+
+    // solo los toca el thread refresher: el merkle tree de la ultima seleccion se actualiza
+    // hoja por hoja en vez de rearmarse, y los hashes de las hojas se reutilizan entre refrescos
+    private MerkleTree tree = new MerkleTree();
+    private List<Transaction> treeTransactions = new ArrayList<>();
+    private Map<Transaction, byte[]> leafHashes = new IdentityHashMap<>();
+    // una coinbase por altura: se reutiliza entre refrescos para no cambiar la primera hoja del arbol
+    private Transaction coinbase;
+    private int coinbaseHeight = -1;
+
+    // guardados por el monitor de this
+    private Block template;
+    private boolean dirty = true;
+    private boolean running = true;
+
+    public BlockTemplateService(Blockchain bc, String minerAddress, BlockAssembler assembler) {
+        this.bc = bc;
+        this.minerAddress = minerAddress;
+        this.assembler = assembler;
+        this.logger = Logger.getInstance();
+        this.poolListener = this::markDirty;
+        this.tipListener = tip -> markDirty();
+        bc.addPoolListener(poolListener);
+        bc.addTipListener(tipListener);
+
+        this.refresher = new Thread(this::refreshLoop, "BlockTemplateRefresher");
+        refresher.setDaemon(true);
+        refresher.start();
+    }
+
+    // Devuelve una copia lista para minar del template actual (sobre la punta vigente de la cadena).
+    // Espera a que haya transacciones pendientes si no las hay.
+    public synchronized Block nextTemplate() throws InterruptedException {
+        while (running) {
+            if (!dirty && template != null && template.getPrevHash().equals(bc.getLatestBlock().getHash())) {
+                return new Block(template);
+            }
+            wait();
+        }
+        throw new InterruptedException("Servicio de templates detenido");
+    }
+
+    public synchronized void close() {
+        running = false;
+        bc.removePoolListener(poolListener);
+        bc.removeTipListener(tipListener);
+        notifyAll();
+    }
+
+    private synchronized void markDirty() {
+        dirty = true;
+        notifyAll();
+    }
+
+    private void refreshLoop() {
+        while (true) {
+            synchronized (this) {
+                while (running && !dirty) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (!running)
+                    return;
+                dirty = false;
+            }
+
+            Block next;
+            try {
+                next = buildTemplate();
+            } catch (Exception e) {
+                logger.error("Error armando template de bloque: " + e.getMessage());
+                next = null;
+            }
+
+            synchronized (this) {
+                // si cambio algo mientras armabamos, dirty quedo en true y se vuelve a armar
+                template = next;
+                notifyAll();
+            }
+        }
+    }
+
+    private Block buildTemplate() {
+        // el assembler conserva su cola entre refrescos: solo entran las nuevas y salen las confirmadas
+        assembler.sync(bc.txPool.view());
+        // altura, padre y dificultad de la misma punta: si entra un bloque mientras armamos no se mezclan
+        ChainTip tip = bc.getTip();
+        int height = tip.getHeight();
+        float reward = bc.getMiningReward();
+        if (coinbase == null || coinbaseHeight != height || coinbase.getAmount() != reward) {
+            coinbase = new Transaction(null, minerAddress, reward);
+            coinbaseHeight = height;
+        }
+        List<Transaction> transactions = assembler.select(coinbase);
+        if (transactions.isEmpty())
+            return null;
+        updateTree(transactions);
+        Block next = new Block(height, transactions, tree.copy(), tip.getParent().getHash(), minerAddress);
+        next.setDifficultyBits(tip.getDifficultyBits());
+        return next;
+    }
+
+    // Lleva el arbol a la seleccion nueva: se conserva el prefijo que no cambio y se reemplazan,
+    // agregan o recortan solo las hojas distintas. Si cambio mas de la mitad conviene armarlo de cero
+    private void updateTree(List<Transaction> selected) {
+        Map<Transaction, byte[]> hashes = new IdentityHashMap<>();
+        for (Transaction tx : selected) {
+            byte[] h = leafHashes.get(tx);
+            hashes.put(tx, h != null ? h : tx.calculateHashBytes());
+        }
+        leafHashes = hashes;
+
+        int common = 0;
+        int shared = Math.min(treeTransactions.size(), selected.size());
+        while (common < shared && treeTransactions.get(common) == selected.get(common)) {
+            common++;
+        }
+
+        if (selected.size() - common > selected.size() / 2) {
+            List<byte[]> leaves = new ArrayList<>(selected.size());
+            for (Transaction tx : selected) {
+                leaves.add(hashes.get(tx));
+            }
+            tree = MerkleTree.build(leaves);
+        } else {
+            tree.truncate(selected.size());
+            for (int i = common; i < selected.size(); i++) {
+                if (i < tree.size()) {
+                    tree.replace(i, hashes.get(selected.get(i)));
+                } else {
+                    tree.append(hashes.get(selected.get(i)));
+                }
+            }
+        }
+        treeTransactions = new ArrayList<>(selected);
+    }
+}
@@ -5,4 +5,7 @@ import model.Blockchain;
 public interface IMiner {
     public void mine(Blockchain bc);
     public boolean validateBlock (Block block);
+    // cantidad de threads que reparten el espacio de nonces
+    public void setWorkerCount(int workers);
+    public int getWorkerCount();
 }
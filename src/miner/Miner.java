@@ -1,20 +1,49 @@
 package miner;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 import model.Block;
 import model.Blockchain;
+import model.ChainTip;
+import model.KeyRegistry;
 import model.Transaction;
 import model.User;
 import wallet.Wallet;
 import utils.Logger;
 import model.BlockValidator;
+import model.ProofOfWork;
 
 public class Miner implements IMiner {
     private float hashMined;
+    // tasa declarada al crear el minero; la real se mide (ver getHashRate / getStats)
     private float hashRate;
     private Wallet wallet;
     private Logger logger;
+    private MiningEngine engine;
+    // dificultad con la que se mino el ultimo bloque, la usa validateBlock(Block)
+    private volatile int difficultyBits = ProofOfWork.hexDigitsToBits(3);
+    // cadena sobre la que se mino por ultima vez: sus claves confirmadas las usa validateBlock(Block)
+    private volatile Blockchain lastChain;
+    // trabajo tirado porque otro nodo extendio la cadena antes que nosotros
+    private final AtomicLong discardedHashes = new AtomicLong();
+    private final AtomicLong staleTemplates = new AtomicLong();
+    // telemetria medida
+    private final AtomicLong totalHashes = new AtomicLong();
+    private final AtomicLong searchNanos = new AtomicLong();
+    private final AtomicLong blocksFound = new AtomicLong();
+    private final LongAdder currentBlockHashes = new LongAdder();
+    private volatile long searchStartNanos; // 0 si no hay busqueda en curso
+    private volatile long lastBlockHashes;
+    private volatile long lastTimeToSolutionMs;
+    // minado continuo (startMining/stopMining)
+    private Thread miningThread;
+    private BlockTemplateService templateService;
+    // limites de cada bloque que arma este minero
+    private int maxBlockTransactions = BlockAssembler.DEFAULT_MAX_TRANSACTIONS;
+    private int maxBlockBytes = BlockAssembler.DEFAULT_MAX_BLOCK_BYTES;
 
     public Miner(float hashRate) {
         this.hashMined = 0.0f;
@@ -38,69 +67,292 @@ public class Miner implements IMiner {
     }
 
     public void mine(Blockchain bc) {
-        if (bc.pendingTransactions.isEmpty()) {
+        if (bc.getPendingCount() == 0) {
             logger.warning("No hay transacciones pendientes para minar.");
             return;
         }
 
         logger.info("Minero " + wallet.getAlias() + " iniciando minado");
+        try {
+            mineNextBlock(bc, () -> buildTemplate(bc, getAddress(), bc.getMiningReward(), false));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-        List<Transaction> transactionsToMine = new ArrayList<>(bc.pendingTransactions);
+    // Mina un bloque aunque el pool este vacio, con la recompensa de `reward` para `rewardAddress`
+    // (ej. la oferta inicial de la red). Las recompensas no pueden entrar por el pool
+    public void mine(Blockchain bc, String rewardAddress, float reward) {
+        logger.info("Minero " + wallet.getAlias() + " minando recompensa de " + reward + " para " + rewardAddress);
+        try {
+            mineNextBlock(bc, () -> buildTemplate(bc, rewardAddress, reward, true));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-        Block latest = bc.getLatestBlock();
-        String prevHash = (latest == null) ? "0" : latest.getHash();
+    // Minado continuo en un thread propio: toma templates ya armados del BlockTemplateService
+    // y pasa al siguiente apenas encuentra un bloque, sin sleeps ni polling del pool.
+    // onBlockMined se llama (en el thread de minado) con cada bloque agregado a la cadena
+    public synchronized void startMining(Blockchain bc, Consumer<Block> onBlockMined) {
+        if (miningThread != null)
+            return;
+        BlockTemplateService templates = new BlockTemplateService(bc, getAddress(),
+                new BlockAssembler(maxBlockTransactions, maxBlockBytes));
+        templateService = templates;
+        miningThread = new Thread(() -> {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    Block mined = mineNextBlock(bc, templates::nextTemplate);
+                    if (mined != null && onBlockMined != null)
+                        onBlockMined.accept(mined);
+                }
+            } catch (InterruptedException e) {
+                // stopMining()
+            } catch (Exception e) {
+                logger.error("Error en thread de mineria: " + e.getMessage());
+            } finally {
+                templates.close();
+            }
+            logger.info("Thread de mineria de " + wallet.getAlias() + " terminado");
+        }, "MiningThread-" + wallet.getAlias());
+        miningThread.setDaemon(true);
+        miningThread.start();
+    }
 
-        Block newBlock = new Block(bc.getChain().size(), transactionsToMine, prevHash, this.getAddress());
+    public synchronized void stopMining() {
+        if (miningThread == null)
+            return;
+        miningThread.interrupt();
+        templateService.close();
+        miningThread = null;
+        templateService = null;
+    }
 
-        int difficulty = bc.getDifficulty();
-        String target = new String(new char[difficulty]).replace('\0', '0');
+    public synchronized boolean isMining() {
+        return miningThread != null;
+    }
 
-        long startTime = System.currentTimeMillis();
+    // maximo de transacciones y de bytes por bloque; aplica a los proximos templates
+    // (si hay minado continuo en curso, a partir del proximo startMining)
+    public synchronized void setBlockLimits(int maxTransactions, int maxBytes) {
+        if (maxTransactions < 1 || maxBytes < 1)
+            throw new IllegalArgumentException("Los limites del bloque tienen que ser positivos");
+        // un bloque mas grande que lo que acepta la validacion lo rechazaria toda la red
+        if (maxTransactions > BlockValidator.MAX_BLOCK_TRANSACTIONS || maxBytes > BlockValidator.MAX_BLOCK_BYTES)
+            throw new IllegalArgumentException("Los limites del bloque superan los que acepta la red");
+        this.maxBlockTransactions = maxTransactions;
+        this.maxBlockBytes = maxBytes;
+    }
 
-        while (!newBlock.getHash().substring(0, Math.min(difficulty, newBlock.getHash().length())).equals(target)) {
-            newBlock.setNonce(newBlock.getNonce() + 1);
-            newBlock.setHash(newBlock.calculateHash());
-        }
+    public synchronized int getMaxBlockTransactions() {
+        return maxBlockTransactions;
+    }
 
-        long timeTaken = System.currentTimeMillis() - startTime;
+    public synchronized int getMaxBlockBytes() {
+        return maxBlockBytes;
+    }
+
+    // fuente de templates: armado en el momento (mine) o pre-armado por el servicio (startMining)
+    private interface TemplateSource {
+        Block next() throws InterruptedException;
+    }
 
-        if (!validateBlock(newBlock)) {
-            logger.error("El bloque minado no es válido.");
-            throw new RuntimeException("El bloque minado no es válido.");
+    // la coinbase va adentro del bloque que se mina: nunca pasa por el pool publico
+    private Block buildTemplate(Blockchain bc, String rewardAddress, float reward, boolean allowEmpty) {
+        BlockAssembler assembler = new BlockAssembler(maxBlockTransactions, maxBlockBytes);
+        assembler.sync(bc.txPool.view());
+        Transaction coinbase = new Transaction(null, rewardAddress, reward);
+        List<Transaction> transactionsToMine = assembler.select(coinbase);
+        if (transactionsToMine.isEmpty()) {
+            if (!allowEmpty)
+                return null;
+            transactionsToMine = List.of(coinbase);
         }
+        ChainTip tip = bc.getTip();
+        Block template = new Block(tip.getHeight(), transactionsToMine, tip.getParent().getHash(), this.getAddress());
+        template.setDifficultyBits(tip.getDifficultyBits());
+        return template;
+    }
+
+    // Mina hasta agregar un bloque a la cadena. Devuelve el bloque, o null si no quedo nada para minar.
+    // Si la punta de la cadena cambia mientras minamos, se corta y se pide un template nuevo
+    // con lo que quede pendiente (las transacciones del bloque ajeno ya salieron del pool)
+    private Block mineNextBlock(Blockchain bc, TemplateSource templates) throws InterruptedException {
+        // tiempo y hashes del template que termina en bloque: los dos se reinician cuando se descarta uno
+        long startTime = 0;
+        Block newBlock;
 
-        // Usar addBlock() para que se haga el broadcast automáticamente
-        bc.addBlock(newBlock);
-        bc.txPool.removeTransactions(transactionsToMine);
-        bc.pendingTransactions.removeAll(transactionsToMine);
+        while (true) {
+            newBlock = templates.next();
+            if (newBlock == null) {
+                logger.info("Las transacciones pendientes ya fueron incluidas por otro nodo.");
+                return null;
+            }
+            String prevHash = newBlock.getPrevHash();
 
-        float miningReward = bc.getMiningReward();
-        Transaction rewardTx = new Transaction(null, wallet.getAddress(), miningReward);
-        bc.pendingTransactions.add(rewardTx);
-        bc.txPool.addTransaction(rewardTx);
+            // el template ya trae la dificultad que le corresponde segun la cadena
+            difficultyBits = newBlock.getDifficultyBits();
+            lastChain = bc;
+            // si el reloj local quedo atras de la cadena (bloque ajeno adelantado), no minar algo que se va a rechazar
+            long minTimestamp = bc.getMinNextTimestamp();
+            if (newBlock.getTimestamp().getTime() < minTimestamp)
+                newBlock.setTimestamp(minTimestamp);
+
+            AtomicBoolean stop = new AtomicBoolean(false);
+            Consumer<Block> tipListener = tip -> {
+                if (!tip.getHash().equals(prevHash))
+                    stop.set(true);
+            };
+            MiningEngine.Result result;
+            bc.addTipListener(tipListener);
+            currentBlockHashes.reset();
+            startTime = System.currentTimeMillis();
+            searchStartNanos = System.nanoTime();
+            try {
+                // la punta pudo cambiar mientras armabamos el template
+                if (!bc.getLatestBlock().getHash().equals(prevHash))
+                    stop.set(true);
+                result = getEngine().search(newBlock, difficultyBits, stop, currentBlockHashes);
+            } finally {
+                bc.removeTipListener(tipListener);
+                searchNanos.addAndGet(System.nanoTime() - searchStartNanos);
+                searchStartNanos = 0;
+            }
+            totalHashes.addAndGet(result.getHashes());
+
+            if (Thread.currentThread().isInterrupted()) {
+                discardWork(newBlock, result.getHashes(), "minado interrumpido");
+                throw new InterruptedException("Minado interrumpido");
+            }
+            if (result.isCancelled()) {
+                discardWork(newBlock, result.getHashes(), "llego un bloque nuevo de la red");
+                continue;
+            }
+            if (!result.isFound()) {
+                logger.error("No se encontro un nonce valido para el bloque #" + newBlock.getIndex());
+                return null;
+            }
+            newBlock.setExtraNonce(result.getExtraNonce());
+            newBlock.setNonce(result.getNonce());
+            newBlock.setHash(newBlock.calculateHash());
+
+            if (!validateBlock(newBlock)) {
+                logger.error("El bloque minado no es válido.");
+                throw new RuntimeException("El bloque minado no es válido.");
+            }
+
+            // Usar addBlock() para que se haga el broadcast automáticamente.
+            // Si otro bloque entro justo antes, el nuestro queda viejo y se vuelve a empezar
+            if (bc.addBlock(newBlock))
+                break;
+            discardWork(newBlock, result.getHashes(), "el bloque encontrado ya no encaja en la cadena");
+        }
 
+        long timeTaken = System.currentTimeMillis() - startTime;
+        blocksFound.incrementAndGet();
+        lastTimeToSolutionMs = timeTaken;
+        lastBlockHashes = currentBlockHashes.sum();
+        currentBlockHashes.reset();
+
+        float miningReward = coinbaseReward(newBlock);
         this.hashMined += miningReward;
         this.wallet.getBalance(bc);
 
         logger.success("Bloque #" + newBlock.getIndex() + " minado por " + wallet.getAlias() + " en " + timeTaken
-                + "ms | Nonce: " + newBlock.getNonce() + " | Recompensa: " + miningReward);
+                + "ms | Nonce: " + newBlock.getNonce() + " (extra " + newBlock.getExtraNonce() + ") | Recompensa: "
+                + miningReward);
+        return newBlock;
+    }
+
+    // lo que se paga este minero en la coinbase del bloque (0 si la recompensa fue para otro)
+    private float coinbaseReward(Block block) {
+        List<Transaction> txs = block.getTransactions();
+        if (txs.isEmpty())
+            return 0f;
+        Transaction coinbase = txs.get(0);
+        if (coinbase.getFromAddress() != null || !getAddress().equals(coinbase.getToAddress()))
+            return 0f;
+        return coinbase.getAmount();
+    }
+
+    private void discardWork(Block staleBlock, long hashes, String reason) {
+        discardedHashes.addAndGet(hashes);
+        staleTemplates.incrementAndGet();
+        logger.warning("Minado del bloque #" + staleBlock.getIndex() + " abortado (" + reason + "). Trabajo descartado: "
+                + hashes + " hashes (total descartado: " + discardedHashes.get() + ")");
+    }
+
+    // Foto de la telemetria: tasa medida, nonces por bloque, tiempo hasta la solucion,
+    // trabajo descartado y progreso estimado del bloque actual
+    public MiningStats getStats() {
+        long start = searchStartNanos;
+        long elapsed = searchNanos.get();
+        long hashes = totalHashes.get();
+        long current = start != 0 ? currentBlockHashes.sum() : 0;
+        if (start != 0) {
+            // contar tambien la busqueda en curso
+            elapsed += System.nanoTime() - start;
+            hashes += current;
+        }
+        double rate = elapsed > 0 ? hashes * 1_000_000_000.0 / elapsed : 0.0;
+        return new MiningStats(hashes, rate, blocksFound.get(), current, lastBlockHashes, lastTimeToSolutionMs,
+                discardedHashes.get(), staleTemplates.get(), difficultyBits);
+    }
+
+    // hashes calculados sobre templates que quedaron viejos
+    public long getDiscardedHashes() {
+        return discardedHashes.get();
+    }
+
+    public long getStaleTemplates() {
+        return staleTemplates.get();
     }
 
     @Override
     public boolean validateBlock(Block block) {
-        // Ideally, validateBlock should receive the blockchain instance or difficulty
-        // For now, we can assume a default or try to get it if we change the signature.
-        // But to keep signature, we will use BlockValidator with a hardcoded difficulty
-        // or similar logic.
-        // Wait, the original code had hardcoded difficulty 3 here.
-        return BlockValidator.validateBlock(block, 3);
+        // IMiner no recibe la blockchain, asi que se valida contra la dificultad y las claves
+        // de la cadena con la que este minero trabajo por ultima vez (3 ceros hex si todavia no mino)
+        Blockchain chain = lastChain;
+        return BlockValidator.validateBlock(block, difficultyBits,
+                chain != null ? chain.getKeyRegistry() : new KeyRegistry());
+    }
+
+    @Override
+    public synchronized void setWorkerCount(int workers) {
+        if (workers < 1)
+            throw new IllegalArgumentException("La cantidad de workers debe ser positiva");
+        if (engine != null) {
+            if (engine.getWorkers() == workers)
+                return;
+            engine.shutdown();
+        }
+        engine = new MiningEngine(workers);
+        logger.info("Minero " + wallet.getAlias() + " usando " + workers + " workers");
+    }
+
+    @Override
+    public synchronized int getWorkerCount() {
+        return getEngine().getWorkers();
+    }
+
+    // por defecto un worker por nucleo disponible
+    private synchronized MiningEngine getEngine() {
+        if (engine == null)
+            engine = new MiningEngine(Runtime.getRuntime().availableProcessors());
+        return engine;
     }
 
     public float getTotalMined() {
         return hashMined;
     }
 
+    // hashes por segundo medidos (0 hasta que el minero haya buscado algo)
     public float getHashRate() {
+        return (float) getStats().getHashRate();
+    }
+
+    public float getNominalHashRate() {
         return hashRate;
     }
 
@@ -118,7 +370,7 @@ public class Miner implements IMiner {
 
     @Override
     public String toString() {
-        return "Miner[alias=" + wallet.getAlias() + ", hashRate=" + hashRate +
+        return "Miner[alias=" + wallet.getAlias() + ", hashRate=" + getHashRate() +
                 ", totalMined=" + hashMined + "]";
     }
 
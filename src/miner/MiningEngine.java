@@ -0,0 +1,160 @@
+package miner;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import model.Block;
+import model.BlockHeader;
+import model.CryptoUtils;
+import model.ProofOfWork;
+
+// Motor de minado paralelo: reparte el espacio de busqueda entre un pool fijo de workers.
+// El nonce es de 64 bits y ademas hay un extraNonce en la cabecera: el worker i usa los extraNonce
+// base + i, base + i + N, base + i + 2N... (N = cantidad de workers) y en cada uno recorre los 2^64 nonces.
+// Asi los espacios no se pisan, ninguno se agota en la practica y los workers solo se coordinan
+// para cortar cuando alguien gana.
+// Cada worker tiene su propia cabecera binaria, digest y buffer de salida: el loop no aloca nada.
+public class MiningEngine {
+
+    // cada cuantos hashes un worker publica su avance en el contador compartido
+    private static final int PROGRESS_BATCH = 4096;
+
+    // resultado de una busqueda: nonce/extraNonce ganadores, o cancelada desde afuera, y cuantos hashes costo
+    public static class Result {
+        private final boolean found;
+        private final long nonce;
+        private final long extraNonce;
+        private final boolean cancelled;
+        private final long hashes;
+
+        Result(boolean found, long nonce, long extraNonce, boolean cancelled, long hashes) {
+            this.found = found;
+            this.nonce = nonce;
+            this.extraNonce = extraNonce;
+            this.cancelled = cancelled;
+            this.hashes = hashes;
+        }
+
+        public boolean isFound() {
+            return found;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public long getNonce() {
+            return nonce;
+        }
+
+        public long getExtraNonce() {
+            return extraNonce;
+        }
+
+        public long getHashes() {
+            return hashes;
+        }
+    }
+
+    private final int workers;
+    private final ExecutorService pool;
+
+    public MiningEngine(int workers) {
+        if (workers < 1)
+            throw new IllegalArgumentException("Se necesita al menos un worker");
+        this.workers = workers;
+        AtomicInteger threadId = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "MiningWorker-" + threadId.incrementAndGet());
+            // daemon para que un minado en curso no impida cerrar la aplicacion
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    // Busca un nonce cuyo hash tenga `difficultyBits` bits cero iniciales.
+    // Todos los workers paran apenas uno encuentra o apenas alguien pone `stop` en true
+    // (ej. llego un bloque de otro nodo y este template quedo viejo).
+    // `progress` (opcional) va sumando los hashes hechos mientras la busqueda sigue en curso.
+    public Result search(Block block, int difficultyBits, AtomicBoolean stop, LongAdder progress) {
+        AtomicBoolean found = new AtomicBoolean(false);
+        // solo los escribe el worker que gana el compareAndSet; se leen despues de invokeAll
+        AtomicLong winnerNonce = new AtomicLong();
+        AtomicLong winnerExtraNonce = new AtomicLong();
+        long baseExtraNonce = block.getExtraNonce();
+
+        List<Callable<Long>> tasks = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            final int lane = w;
+            tasks.add(() -> {
+                BlockHeader header = block.getHeader();
+                MessageDigest md = CryptoUtils.newSha256();
+                byte[] hash = new byte[BlockHeader.HASH_SIZE];
+                long tried = 0;
+                int unreported = 0;
+                long extraNonce = baseExtraNonce + lane;
+                long nonce = 0;
+                header.setExtraNonce(extraNonce);
+                while (!stop.get()) {
+                    header.setNonce(nonce);
+                    header.hashInto(md, hash);
+                    tried++;
+                    if (ProofOfWork.meetsDifficulty(hash, difficultyBits)) {
+                        if (found.compareAndSet(false, true)) {
+                            winnerNonce.set(nonce);
+                            winnerExtraNonce.set(extraNonce);
+                        }
+                        stop.set(true);
+                        break;
+                    }
+                    if (++unreported == PROGRESS_BATCH) {
+                        if (progress != null)
+                            progress.add(unreported);
+                        unreported = 0;
+                    }
+                    // se dio la vuelta a los 2^64 nonces: siguiente extraNonce de este worker
+                    if (++nonce == 0) {
+                        extraNonce += workers;
+                        header.setExtraNonce(extraNonce);
+                    }
+                }
+                if (progress != null)
+                    progress.add(unreported);
+                return tried;
+            });
+        }
+
+        long hashes = 0;
+        try {
+            List<Future<Long>> futures = pool.invokeAll(tasks);
+            for (Future<Long> f : futures) {
+                hashes += f.get();
+            }
+        } catch (InterruptedException e) {
+            stop.set(true);
+            Thread.currentThread().interrupt();
+            return new Result(false, 0, 0, true, hashes);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error en worker de minado", e.getCause());
+        }
+        boolean won = found.get();
+        return new Result(won, winnerNonce.get(), winnerExtraNonce.get(), !won && stop.get(), hashes);
+    }
+
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,92 @@
+package miner;
+
+// Foto inmutable de la telemetria de un minero (ver Miner.getStats()).
+// Todo sale de hashes contados de verdad por los workers, no de valores configurados.
+public class MiningStats {
+    private final long totalHashes;
+    private final double hashRate;
+    private final long blocksFound;
+    private final long currentBlockHashes;
+    private final long lastBlockHashes;
+    private final long lastTimeToSolutionMs;
+    private final long discardedHashes;
+    private final long staleTemplates;
+    private final int difficultyBits;
+
+    public MiningStats(long totalHashes, double hashRate, long blocksFound, long currentBlockHashes,
+            long lastBlockHashes, long lastTimeToSolutionMs, long discardedHashes, long staleTemplates,
+            int difficultyBits) {
+        this.totalHashes = totalHashes;
+        this.hashRate = hashRate;
+        this.blocksFound = blocksFound;
+        this.currentBlockHashes = currentBlockHashes;
+        this.lastBlockHashes = lastBlockHashes;
+        this.lastTimeToSolutionMs = lastTimeToSolutionMs;
+        this.discardedHashes = discardedHashes;
+        this.staleTemplates = staleTemplates;
+        this.difficultyBits = difficultyBits;
+    }
+
+    // hashes calculados desde que se creo el minero (incluye el trabajo descartado)
+    public long getTotalHashes() {
+        return totalHashes;
+    }
+
+    // hashes por segundo medidos sobre el tiempo que los workers estuvieron buscando
+    public double getHashRate() {
+        return hashRate;
+    }
+
+    public long getBlocksFound() {
+        return blocksFound;
+    }
+
+    // nonces probados en el template que se esta minando ahora (0 si no esta minando)
+    public long getCurrentBlockHashes() {
+        return currentBlockHashes;
+    }
+
+    // nonces que hicieron falta para resolver el ultimo bloque
+    public long getLastBlockHashes() {
+        return lastBlockHashes;
+    }
+
+    public long getLastTimeToSolutionMs() {
+        return lastTimeToSolutionMs;
+    }
+
+    public long getDiscardedHashes() {
+        return discardedHashes;
+    }
+
+    public long getStaleTemplates() {
+        return staleTemplates;
+    }
+
+    public int getDifficultyBits() {
+        return difficultyBits;
+    }
+
+    // hashes esperados para encontrar un bloque: cada intento cumple con probabilidad 2^-bits
+    public double getExpectedHashes() {
+        return Math.pow(2, difficultyBits);
+    }
+
+    // fraccion del trabajo esperado que ya se hizo en el bloque actual, entre 0 y 1.
+    // Es una estimacion: el PoW no tiene memoria y se puede pasar del esperado
+    public double getProgress() {
+        return Math.min(1.0, currentBlockHashes / getExpectedHashes());
+    }
+
+    // segundos esperados hasta encontrar un bloque a la tasa medida (infinito si no hay tasa todavia)
+    public double getExpectedSecondsToSolution() {
+        return hashRate > 0 ? getExpectedHashes() / hashRate : Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MiningStats[hashRate=%.1f H/s, totalHashes=%d, blocks=%d, lastBlockHashes=%d, "
+                + "lastTimeToSolution=%dms, discarded=%d, difficulty=%d bits]", hashRate, totalHashes, blocksFound,
+                lastBlockHashes, lastTimeToSolutionMs, discardedHashes, difficultyBits);
+    }
+}
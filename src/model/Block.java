@@ -1,13 +1,14 @@
 package model;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
 import java.io.Serializable;
 
 public class Block implements Serializable {
-    private static final long serialVersionUID = 1L;
+    private static final long serialVersionUID = 2L;
 
     private String hash;
     private String prevHash;
@@ -15,10 +16,18 @@ public class Block implements Serializable {
     private Date timestamp;
     private int index;
     private List<Transaction> transactions;
-    private int nonce;
-    private static final CryptoUtils crypto = new CryptoUtils();
+    private long nonce;
+    // segundo contador del PoW: cuando se agotan los 2^64 nonces se pasa al siguiente extraNonce.
+    // En el minado paralelo cada worker usa extraNonces distintos, asi sus espacios no se pisan
+    private long extraNonce;
+    // dificultad (bits cero) que este bloque declara cumplir; va en la cabecera para que no se pueda cambiar
+    private int difficultyBits;
     private String minerAddress;
     private String signature; // firma del bloque
+    // cache del merkle tree y su raiz: las transacciones no cambian mientras se prueban nonces.
+    // transient para que no viaje por la red; se recalcula al recibir el bloque
+    private transient volatile MerkleTree merkleTree;
+    private transient volatile String merkleRoot;
 
     public Block(int index, List<Transaction> transactions, String prevHash, String minerAddress) {
         this.index = index;
@@ -41,6 +50,35 @@ public class Block implements Serializable {
         this.hash = calculateHash();
     }
 
+    // Con un merkle tree ya armado para estas transacciones (ej. el que el template del minero
+    // va actualizando de a una hoja). El bloque se queda con el arbol: no modificarlo despues
+    public Block(int index, List<Transaction> transactions, MerkleTree merkleTree, String prevHash,
+            String minerAddress) {
+        this.index = index;
+        this.transactions = new ArrayList<>(transactions);
+        this.merkleTree = merkleTree;
+        this.minerAddress = minerAddress;
+        this.prevHash = prevHash;
+        this.nonce = 0;
+        this.timestamp = new Date();
+        this.hash = calculateHash();
+    }
+
+    // Copia de un template ya armado: mismas transacciones y merkle root ya calculado,
+    // con timestamp actual y nonce en 0. La usa el servicio de templates del minero
+    public Block(Block template) {
+        this.index = template.index;
+        this.transactions = template.transactions;
+        this.merkleTree = template.getMerkleTree();
+        this.merkleRoot = template.getMerkleRoot();
+        this.minerAddress = template.minerAddress;
+        this.prevHash = template.prevHash;
+        this.difficultyBits = template.difficultyBits;
+        this.nonce = 0;
+        this.timestamp = new Date();
+        this.hash = calculateHash();
+    }
+
     public String getSignature() {
         return signature;
     }
@@ -49,34 +87,59 @@ public class Block implements Serializable {
         this.signature = signature;
     }
 
-    // Concatena todoo para generar el hash del bloque
+    // Hashea la cabecera binaria del bloque (ver BlockHeader)
     public String calculateHash() {
-        String datoParaHash = index + (prevHash == null ? "" : prevHash) + timestamp.getTime() + nonce
-                + getMerkleRoot();
-        return crypto.hash(datoParaHash);
+        return CryptoUtils.toHex(calculateHashBytes());
+    }
+
+    // el mismo hash en crudo, para chequear la dificultad sin pasar por hex
+    public byte[] calculateHashBytes() {
+        byte[] out = new byte[BlockHeader.HASH_SIZE];
+        getHeader().hashInto(CryptoUtils.sha256Digest(), out);
+        return out;
+    }
+
+    // Cabecera binaria nueva con el nonce actual. Cada worker de minado usa la suya
+    // y solo le cambia el nonce en cada intento.
+    public BlockHeader getHeader() {
+        return new BlockHeader(index, prevHash, timestamp.getTime(), getMerkleRoot(), difficultyBits, extraNonce, nonce);
     }
 
     // MerkleRoot es básicamente una forma de reducir las transacciones de un bloque
-    // que le des, es una formula matematica que se usa para hashear
+    // que le des, es una formula matematica que se usa para hashear.
+    // Se calcula una sola vez y se reutiliza hasta que cambien las transacciones
     public String getMerkleRoot() {
-        List<String> treeLayer = new ArrayList<>();
-        for (Transaction tx : transactions) {
-            treeLayer.add(tx.calculateHash());
+        String root = merkleRoot;
+        if (root == null) {
+            root = getMerkleTree().getRootHex();
+            merkleRoot = root;
+        }
+        return root;
+    }
+
+    // arbol completo (hoja = hash de la tx, nodo = sha256(izq || der)), solo lectura
+    public MerkleTree getMerkleTree() {
+        MerkleTree tree = merkleTree;
+        if (tree == null) {
+            tree = MerkleTree.ofTransactions(transactions);
+            merkleTree = tree;
         }
-        if (treeLayer.isEmpty())
-            return "";
-        while (treeLayer.size() > 1) {
-            List<String> nextLayer = new ArrayList<>();
-            for (int i = 0; i < treeLayer.size(); i += 2) {
-                if (i + 1 < treeLayer.size()) {
-                    nextLayer.add(crypto.hash(treeLayer.get(i) + treeLayer.get(i + 1)));
-                } else {
-                    nextLayer.add(crypto.hash(treeLayer.get(i) + treeLayer.get(i)));
-                }
-            }
-            treeLayer = nextLayer;
+        return tree;
+    }
+
+    // prueba de inclusion de la transaccion en la posicion `txIndex`
+    public MerkleProof getMerkleProof(int txIndex) {
+        return getMerkleTree().proof(txIndex);
+    }
+
+    // prueba de inclusion buscando la transaccion por su hash; null si no esta en el bloque
+    public MerkleProof getMerkleProof(String txHash) {
+        MerkleTree tree = getMerkleTree();
+        for (int i = 0; i < tree.size(); i++) {
+            if (CryptoUtils.toHex(tree.getLeaf(i)).equalsIgnoreCase(txHash))
+                return tree.proof(i);
         }
-        return treeLayer.get(0);
+        return null;
     }
 
     // valida las transacciones
@@ -104,18 +167,42 @@ public class Block implements Serializable {
         return prevHash;
     }
 
+    // vista de solo lectura: cambiar las transacciones tiene que pasar por setTransactions
+    // para que se invalide el merkle root cacheado
     public List<Transaction> getTransactions() {
-        return transactions;
+        return Collections.unmodifiableList(transactions);
     }
 
-    public int getNonce() {
+    public void setTransactions(List<Transaction> transactions) {
+        this.transactions = new ArrayList<>(transactions);
+        this.merkleTree = null;
+        this.merkleRoot = null;
+    }
+
+    public long getNonce() {
         return nonce;
     }
 
-    public void setNonce(int nonce) {
+    public void setNonce(long nonce) {
         this.nonce = nonce;
     }
 
+    public int getDifficultyBits() {
+        return difficultyBits;
+    }
+
+    public void setDifficultyBits(int difficultyBits) {
+        this.difficultyBits = difficultyBits;
+    }
+
+    public long getExtraNonce() {
+        return extraNonce;
+    }
+
+    public void setExtraNonce(long extraNonce) {
+        this.extraNonce = extraNonce;
+    }
+
     public void incrementNonce() {
         this.nonce++;
     }
@@ -124,6 +211,11 @@ public class Block implements Serializable {
         return timestamp;
     }
 
+    // para ajustar un template antes de minarlo (ver BlockchainCore.getMinNextTimestamp); cambia el hash
+    public void setTimestamp(long timestampMillis) {
+        this.timestamp = new Date(timestampMillis);
+    }
+
     public int getIndex() {
         return index;
     }
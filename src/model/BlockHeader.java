@@ -0,0 +1,76 @@
+package model;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+
+// Cabecera binaria de tamaño fijo que se hashea para el PoW.
+// Layout (big-endian, 96 bytes):
+//   [0..4)   index
+//   [4..36)  prevHash
+//   [36..44) timestamp (millis)
+//   [44..76) merkle root
+//   [76..80) dificultad declarada (bits)
+//   [80..88) extraNonce
+//   [88..96) nonce (64 bits)
+// Se serializa una sola vez por bloque; durante el minado solo se reescriben los bytes del nonce,
+// asi cada intento no genera Strings ni arrays nuevos.
+public class BlockHeader {
+    public static final int SIZE = 96;
+    public static final int HASH_SIZE = 32;
+
+    private static final int INDEX_OFFSET = 0;
+    private static final int PREV_HASH_OFFSET = 4;
+    private static final int TIMESTAMP_OFFSET = 36;
+    private static final int MERKLE_OFFSET = 44;
+    private static final int DIFFICULTY_OFFSET = 76;
+    private static final int EXTRA_NONCE_OFFSET = 80;
+    private static final int NONCE_OFFSET = 88;
+
+    private final byte[] data;
+
+    public BlockHeader(int index, String prevHash, long timestamp, String merkleRoot, int difficultyBits,
+            long extraNonce, long nonce) {
+        this.data = new byte[SIZE];
+        writeInt(INDEX_OFFSET, index);
+        System.arraycopy(CryptoUtils.toHash32(prevHash), 0, data, PREV_HASH_OFFSET, HASH_SIZE);
+        writeLong(TIMESTAMP_OFFSET, timestamp);
+        System.arraycopy(CryptoUtils.toHash32(merkleRoot), 0, data, MERKLE_OFFSET, HASH_SIZE);
+        writeInt(DIFFICULTY_OFFSET, difficultyBits);
+        writeLong(EXTRA_NONCE_OFFSET, extraNonce);
+        writeLong(NONCE_OFFSET, nonce);
+    }
+
+    public void setNonce(long nonce) {
+        writeLong(NONCE_OFFSET, nonce);
+    }
+
+    public void setExtraNonce(long extraNonce) {
+        writeLong(EXTRA_NONCE_OFFSET, extraNonce);
+    }
+
+    // hashea la cabecera dentro de `out` (32 bytes) reutilizando el digest del llamador
+    public void hashInto(MessageDigest md, byte[] out) {
+        md.update(data, 0, SIZE);
+        try {
+            md.digest(out, 0, HASH_SIZE);
+        } catch (DigestException e) {
+            throw new RuntimeException("Error hasheando cabecera", e);
+        }
+    }
+
+    public byte[] toBytes() {
+        return data.clone();
+    }
+
+    private void writeInt(int offset, int value) {
+        data[offset] = (byte) (value >>> 24);
+        data[offset + 1] = (byte) (value >>> 16);
+        data[offset + 2] = (byte) (value >>> 8);
+        data[offset + 3] = (byte) value;
+    }
+
+    private void writeLong(int offset, long value) {
+        writeInt(offset, (int) (value >>> 32));
+        writeInt(offset + 4, (int) value);
+    }
+}
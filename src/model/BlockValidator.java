@@ -1,13 +1,33 @@
 package model;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import utils.Logger;
 
 public class BlockValidator {
 
+    // reglas de tiempo (consenso): el timestamp alimenta el reajuste de dificultad, asi que se acota
+    // por abajo con la mediana de los ultimos MEDIAN_TIME_SPAN bloques y por arriba con el reloj local
+    public static final int MEDIAN_TIME_SPAN = 11;
+    public static final long MAX_FUTURE_DRIFT_MS = 2 * 60 * 1000;
+    // limites de consenso de un bloque: el minero puede armarlos mas chicos, nunca mas grandes
+    public static final int MAX_BLOCK_TRANSACTIONS = 1000;
+    public static final int MAX_BLOCK_BYTES = 1_000_000;
+
     private static final Logger logger = Logger.getInstance();
 
-    public static boolean validateBlock(Block block, int difficulty) {
-        if (!block.getHash().equals(block.calculateHash())) {
+    // difficultyBits: bits cero iniciales que tiene que tener el hash (ver ProofOfWork);
+    // keys: claves confirmadas de la cadena sobre la que va el bloque
+    public static boolean validateBlock(Block block, int difficultyBits, KeyRegistry keys) {
+        if (!withinLimits(block)) {
+            logger.error("Bloque #" + block.getIndex() + " supera los limites de tamaño");
+            return false;
+        }
+
+        byte[] hash = block.calculateHashBytes();
+        if (!block.getHash().equals(CryptoUtils.toHex(hash))) {
             logger.error("Hash inválido en bloque #" + block.getIndex());
             return false;
         }
@@ -17,20 +37,129 @@ public class BlockValidator {
             return false;
         }
 
-        String target = new String(new char[difficulty]).replace('\0', '0');
-        if (!block.getHash().substring(0, Math.min(difficulty, block.getHash().length())).equals(target)) {
+        if (!ProofOfWork.meetsDifficulty(hash, difficultyBits)) {
             logger.error("Dificultad no cumplida en bloque #" + block.getIndex());
             return false;
         }
 
+        if (!validateSignatures(block, keys)) {
+            return false;
+        }
+
         logger.debug("Bloque #" + block.getIndex() + " validado correctamente");
         return true;
     }
     
+    // Un bloque recibido no trae el merkle tree (es transient): calculateHash lo rearma desde las
+    // transacciones, en paralelo si el bloque es grande (ver MerkleTree)
     public static boolean validateBlockStructure(Block block) {
+        // limites antes de hashear nada: un bloque gigante se descarta sin armar su merkle tree
+        if (!withinLimits(block)) {
+            logger.error("Bloque #" + block.getIndex() + " supera los limites de tamaño");
+            return false;
+        }
          if (!block.getHash().equals(block.calculateHash())) {
             return false;
         }
         return block.hasValidTransactions();
     }
+
+    // cantidad de transacciones y bytes codificados (Transaction.estimateSize) dentro de los maximos
+    public static boolean withinLimits(Block block) {
+        List<Transaction> txs = block.getTransactions();
+        if (txs.size() > MAX_BLOCK_TRANSACTIONS)
+            return false;
+        long bytes = 0;
+        for (Transaction tx : txs) {
+            if (tx == null)
+                continue;
+            bytes += tx.estimateSize();
+            if (bytes > MAX_BLOCK_BYTES)
+                return false;
+        }
+        return true;
+    }
+
+    // Timestamp del bloque que va despues de `prefix`: no antes que el anterior, estrictamente despues de la
+    // mediana de los ultimos MEDIAN_TIME_SPAN y no mas de MAX_FUTURE_DRIFT_MS adelante de `nowMs`.
+    // Sin esto un minero puede atrasar o adelantar fechas y mover la dificultad a gusto en cada ventana
+    public static boolean validateTimestamp(Block block, List<Block> prefix, long nowMs) {
+        long ts = block.getTimestamp().getTime();
+        long prev = prefix.get(prefix.size() - 1).getTimestamp().getTime();
+        if (ts < prev) {
+            logger.error("Timestamp del bloque #" + block.getIndex() + " anterior al del bloque previo");
+            return false;
+        }
+        if (ts <= medianTimePast(prefix)) {
+            logger.error("Timestamp del bloque #" + block.getIndex() + " no supera la mediana de los ultimos bloques");
+            return false;
+        }
+        if (ts > nowMs + MAX_FUTURE_DRIFT_MS) {
+            logger.error("Timestamp del bloque #" + block.getIndex() + " demasiado en el futuro");
+            return false;
+        }
+        return true;
+    }
+
+    // Saldo confirmado de `address` en `blocks`: lo que recibio menos lo que envio (el fee no se descuenta)
+    public static float balanceOf(List<Block> blocks, String address) {
+        float balance = 0.0f;
+        for (Block block : blocks) {
+            for (Transaction tx : block.getTransactions()) {
+                if (tx == null)
+                    continue;
+                if (address.equals(tx.getFromAddress()))
+                    balance -= tx.getAmount();
+                if (address.equals(tx.getToAddress()))
+                    balance += tx.getAmount();
+            }
+        }
+        return balance;
+    }
+
+    // Ningun emisor del bloque gasta mas de lo que tiene: su saldo en `balances` (si no esta, lo da `confirmed`)
+    // mas lo que recibe antes en el mismo bloque. Va aplicando los movimientos del bloque sobre `balances`,
+    // asi se puede encadenar bloque tras bloque (ver replaceChain)
+    public static boolean validateBalances(Block block, Map<String, Float> balances,
+            Function<String, Float> confirmed) {
+        for (Transaction tx : block.getTransactions()) {
+            if (tx == null)
+                continue;
+            String from = tx.getFromAddress();
+            if (from != null) {
+                float balance = balances.computeIfAbsent(from, confirmed);
+                if (tx.getAmount() > balance) {
+                    logger.error("Saldo insuficiente en bloque #" + block.getIndex() + ": tx " + tx.getTxId());
+                    return false;
+                }
+                balances.put(from, balance - tx.getAmount());
+            }
+            String to = tx.getToAddress();
+            if (to != null)
+                balances.put(to, balances.computeIfAbsent(to, confirmed) + tx.getAmount());
+        }
+        return true;
+    }
+
+    // mediana de los timestamps de los ultimos MEDIAN_TIME_SPAN bloques de la cadena
+    public static long medianTimePast(List<Block> chain) {
+        int n = Math.min(MEDIAN_TIME_SPAN, chain.size());
+        long[] times = new long[n];
+        for (int i = 0; i < n; i++) {
+            times[i] = chain.get(chain.size() - 1 - i).getTimestamp().getTime();
+        }
+        Arrays.sort(times);
+        return times[n / 2];
+    }
+
+    // Firmas de todas las transacciones del bloque, en paralelo (ver SignatureVerifier).
+    // Es lo mas caro de validar: va despues de los chequeos de hash y dificultad.
+    // `keys` son las claves confirmadas en la cadena previa; las que revela el mismo bloque tambien valen
+    public static boolean validateSignatures(Block block, KeyRegistry keys) {
+        if (!SignatureVerifier.getInstance().verifyAll(block.getTransactions(), keys)) {
+            logger.error("Firma inválida en bloque #" + block.getIndex());
+            return false;
+        }
+        return true;
+    }
 }
@@ -1,25 +1,56 @@
 package model;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
 import miner.Miner;
 import utils.Logger;
+import utils.RollingBloomFilter;
 
 public class Blockchain extends BlockchainCore {
-    public List<Transaction> pendingTransactions;
     public ContractRegistry contractRegistry;
     public TransactionPool txPool;
     private Logger logger;
+    private final SignatureVerifier verifier = SignatureVerifier.getInstance();
+    // txids confirmados hace poco (los ultimos 100k-200k): una tx re-difundida o ya minada se descarta
+    // antes de validar o verificar nada. El filtro es solo el pre-filtro barato: un acierto se confirma
+    // contra recentTxIds (exacto), asi un falso positivo (~1 en 10^4) no tira una tx nueva
+    private static final int RECENT_CONFIRMED = 100_000;
+    private final RollingBloomFilter recentlyConfirmed = new RollingBloomFilter(RECENT_CONFIRMED, 0.0001);
+    // los mismos txids, exactos: la ventana del filtro (a lo sumo 2 generaciones), en orden de confirmacion
+    private final Map<String, Boolean> recentTxIds = new LinkedHashMap<String, Boolean>() {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > 2 * RECENT_CONFIRMED;
+        }
+    };
+    private final LongAdder duplicatesDropped = new LongAdder();
+    private TransactionAdmissionPipeline admissionPipeline;
+    // chequeo de saldo + insercion en el pool, atomico entre todos los caminos de admision: dos tx del
+    // mismo emisor no pueden pasar las dos contra el mismo saldo
+    private final Object admissionLock = new Object();
+    // se avisa cuando entra una transaccion nueva al pool (ej. para refrescar templates de minado)
+    private final List<Runnable> poolListeners = new CopyOnWriteArrayList<>();
 
-    private int difficulty = 3; // cuantos ceros iniciales en el hash para el PoW
     private float miningReward = 50.0f;
 
     public Blockchain() {
         // BlockchainCore() ya inicializa `chain` y crea el genesis
         super();
-        this.pendingTransactions = new ArrayList<>();
         this.contractRegistry = new ContractRegistry();
         this.txPool = new TransactionPool();
+        // lo que el mempool expulsa o vence deja de ser candidato para los templates
+        this.txPool.setOnEvicted(this::notifyPoolChanged);
         this.logger = Logger.getInstance();
         logger.info("Blockchain inicializada");
         // no volver a crear genesis ni reasignar `chain`
@@ -31,47 +62,265 @@ public class Blockchain extends BlockchainCore {
 
     // Agrega transacción SOLO al pool (sin confirmar aún)
     public void addTransactionToPool(Transaction tx) {
-        if (tx == null || !tx.isValid()) {
+        rejectReward(tx);
+        if (isDuplicate(tx))
+            return;
+        if (tx == null || !tx.isValid() || !verifier.verify(tx, getKeyRegistry())) {
             logger.error("Transacción inválida: " + (tx != null ? tx.toString() : "null"));
             throw new RuntimeException("Transacción inválida, no se puede añadir.");
         }
-        this.txPool.addTransaction(tx);
-        logger.debug("Transacción agregada al pool: " + tx.toAddress + " -> " + tx.amount);
+        if (!admit(tx))
+            return;
+        logger.debug("Transacción agregada al pool: " + tx.getToAddress() + " -> " + tx.getAmount());
+        notifyPoolChanged();
     }
 
-    // Agrega transacción al pool y a pendingTransactions (para uso interno/minería)
+    // Igual que addTransactionToPool pero para las creadas en este nodo (se loguean como info)
     public void createTransaction(Transaction tx) {
-        if (tx == null || !tx.isValid()) {
+        rejectReward(tx);
+        if (isDuplicate(tx))
+            return;
+        if (tx == null || !tx.isValid() || !verifier.verify(tx, getKeyRegistry())) {
             logger.error("Transacción inválida para crear: " + (tx != null ? tx.toString() : "null"));
             throw new RuntimeException("Transacción inválida, no se puede añadir.");
         }
-        this.pendingTransactions.add(tx);
-        this.txPool.addTransaction(tx);
-        logger.info("Transacción creada: " + tx.fromAddress + " -> " + tx.toAddress + " (" + tx.amount + ")");
+        if (!admit(tx))
+            return;
+        logger.info("Transacción creada: " + tx.getFromAddress() + " -> " + tx.getToAddress() + " (" + tx.getAmount() + ")");
+        notifyPoolChanged();
     }
 
-    // Minado de las transacciones pendientes. Recompensa al miner
-    public void minePendingTransactions(Miner miner) {
-        miner.mine(this);
+    // Admision de varias transacciones juntas: las firmas se verifican en paralelo y las invalidas
+    // se descartan sin frenar al resto. Devuelve cuantas entraron
+    public int addTransactionsToPool(Collection<Transaction> txs) {
+        List<Transaction> structurallyValid = new ArrayList<>(txs.size());
+        for (Transaction tx : txs) {
+            if (tx != null && !isReward(tx) && !isDuplicate(tx) && tx.isValid())
+                structurallyValid.add(tx);
+        }
+        List<Transaction> verified = verifier.filterValid(structurallyValid, getKeyRegistry());
+        if (verified.size() < txs.size())
+            logger.error((txs.size() - verified.size()) + " transacciones inválidas descartadas");
+        return insertVerified(verified).size();
     }
 
-    public float getBalance(String address) {
-        float balance = 0.0f;
+    // Inserta en el mempool tx ya validadas y verificadas (ultimo paso de la admision), salvo las que el
+    // emisor no puede pagar. Devuelve las que entraron, en el mismo orden
+    List<Transaction> insertVerified(List<Transaction> verified) {
+        List<Transaction> inserted = new ArrayList<>(verified.size());
+        synchronized (admissionLock) {
+            for (Transaction tx : funded(verified)) {
+                if (txPool.addTransaction(tx))
+                    inserted.add(tx);
+            }
+        }
+        if (!inserted.isEmpty())
+            notifyPoolChanged();
+        return inserted;
+    }
+
+    // Las de `txs` que su emisor puede pagar: saldo confirmado menos lo que ya gasta en el pool y en las
+    // anteriores de la lista (mismo criterio que getBalance: el fee no se descuenta). Con admissionLock tomado
+    private List<Transaction> funded(List<Transaction> txs) {
+        Map<String, Float> available = new HashMap<>();
+        for (Transaction tx : txs) {
+            String from = tx.getFromAddress();
+            if (from != null && !available.containsKey(from))
+                available.put(from, getBalance(from));
+        }
+        if (!available.isEmpty()) {
+            for (Transaction pending : txPool.view()) {
+                String from = pending.getFromAddress();
+                if (from != null && available.containsKey(from))
+                    available.put(from, available.get(from) - pending.getAmount());
+            }
+        }
+        List<Transaction> funded = new ArrayList<>(txs.size());
+        for (Transaction tx : txs) {
+            String from = tx.getFromAddress();
+            if (from == null || txPool.contains(tx.getTxId())) {
+                // las recompensas las rechaza el pool; una repetida la descarta addTransaction
+                funded.add(tx);
+                continue;
+            }
+            float balance = available.get(from);
+            if (tx.getAmount() > balance) {
+                logger.debug("Saldo insuficiente para tx " + tx.getTxId() + ": " + balance + " < " + tx.getAmount());
+                continue;
+            }
+            available.put(from, balance - tx.getAmount());
+            funded.add(tx);
+        }
+        return funded;
+    }
+
+    // Apaga los threads del nodo: las etapas de admision y el vencimiento del mempool.
+    // La cadena y el pool se pueden seguir leyendo
+    public synchronized void close() {
+        if (admissionPipeline != null) {
+            admissionPipeline.close();
+            admissionPipeline = null;
+        }
+        txPool.close();
+    }
 
-        // Solo recorrer transacciones confirmadas (en bloques minados)
+    // Una recompensa (sin emisor) solo la puede poner el minero dentro de su propio bloque: por el pool
+    // cualquier peer podria difundir una y crear monedas
+    static boolean isReward(Transaction tx) {
+        return tx.getFromAddress() == null;
+    }
+
+    private void rejectReward(Transaction tx) {
+        if (tx != null && isReward(tx)) {
+            logger.error("Recompensa rechazada en el pool: " + tx.getToAddress() + " (" + tx.getAmount() + ")");
+            throw new RuntimeException("Las recompensas no entran al pool: las agrega el minero en su bloque.");
+        }
+    }
+
+    // Admision asincronica (red, controlador): valida y verifica fuera del thread que recibe la tx.
+    // Se crea con el primer uso
+    public synchronized TransactionAdmissionPipeline getAdmissionPipeline() {
+        if (admissionPipeline == null) {
+            admissionPipeline = new TransactionAdmissionPipeline(this, verifier);
+        }
+        return admissionPipeline;
+    }
+
+    // Ya pendiente (por txid) o confirmada hace poco (filtro): se descarta en O(1), sin validar nada.
+    // El txid incluye el timestamp de creacion, asi que dos tx legitimas con los mismos datos no chocan
+    boolean isDuplicate(Transaction tx) {
+        if (tx == null)
+            return false;
+        boolean duplicate = txPool.contains(tx.getTxId())
+                || (recentlyConfirmed.mightContain(tx.calculateHashBytes()) && wasRecentlyConfirmed(tx.getTxId()));
+        if (duplicate) {
+            duplicatesDropped.increment();
+            logger.debug("Transacción repetida descartada: " + tx.getTxId());
+        }
+        return duplicate;
+    }
+
+    private boolean wasRecentlyConfirmed(String txId) {
+        synchronized (recentTxIds) {
+            return recentTxIds.containsKey(txId);
+        }
+    }
+
+    private void rememberConfirmed(Transaction tx) {
+        recentlyConfirmed.add(tx.calculateHashBytes());
+        synchronized (recentTxIds) {
+            recentTxIds.put(tx.getTxId(), Boolean.TRUE);
+        }
+    }
+
+    // copias de tx ya conocidas que llegaron y se descartaron (gossip de varios peers, re-difusiones)
+    public long getDuplicatesDropped() {
+        return duplicatesDropped.sum();
+    }
+
+    // Mete en el mempool una tx ya verificada. Una repetida se ignora (false);
+    // si no entra porque el pool esta lleno y paga poco, es un error para quien la manda
+    private boolean admit(Transaction tx) {
+        synchronized (admissionLock) {
+            if (txPool.contains(tx.getTxId())) {
+                logger.debug("Transacción repetida, ya estaba en el pool: " + tx.getTxId());
+                return false;
+            }
+            if (funded(Collections.singletonList(tx)).isEmpty()) {
+                logger.error("Saldo insuficiente: " + tx.getFromAddress() + " no puede pagar " + tx.getAmount());
+                throw new RuntimeException("Saldo insuficiente para la transacción.");
+            }
+            if (txPool.addTransaction(tx))
+                return true;
+        }
+        throw new RuntimeException("Mempool lleno: la transacción paga menos fee que las que ya están.");
+    }
+
+    // El mempool (txPool) es el unico dueño de las pendientes; estas son sus vistas
+    // copia en orden de llegada, para mostrar
+    public List<Transaction> getPendingTransactions() {
+        return txPool.getPending();
+    }
+
+    public int getPendingCount() {
+        return txPool.size();
+    }
+
+    public void addPoolListener(Runnable listener) {
+        poolListeners.add(listener);
+    }
+
+    public void removePoolListener(Runnable listener) {
+        poolListeners.remove(listener);
+    }
+
+    private void notifyPoolChanged() {
+        for (Runnable listener : poolListeners) {
+            listener.run();
+        }
+    }
+
+    // las transacciones que entraron en un bloque (propio o de un peer) dejan de estar pendientes
+    @Override
+    protected void onBlockAppended(Block block) {
+        txPool.removeTransactions(block.getTransactions());
+        for (Transaction tx : block.getTransactions()) {
+            if (tx != null)
+                rememberConfirmed(tx);
+        }
+    }
+
+    // Reorg: lo confirmado en la cadena vieja ya no es lo mismo que en la nueva
+    @Override
+    protected void onChainReplaced(List<Block> orphaned, List<Block> added) {
+        // los filtros de confirmadas se rearman con la cadena nueva: lo que solo estaba en los bloques
+        // huerfanos tiene que poder volver a entrar (y una re-difusion no es una repetida)
+        Set<String> confirmed = new HashSet<>();
+        recentlyConfirmed.clear();
+        synchronized (recentTxIds) {
+            recentTxIds.clear();
+        }
         for (Block block : getChain()) {
             for (Transaction tx : block.getTransactions()) {
-                if (address.equals(tx.fromAddress)) {
-                    balance -= tx.amount;
-                }
-                if (address.equals(tx.toAddress)) {
-                    balance += tx.amount;
-                }
+                if (tx == null)
+                    continue;
+                confirmed.add(tx.getTxId());
+                rememberConfirmed(tx);
+            }
+        }
+        for (Block block : added) {
+            txPool.removeTransactions(block.getTransactions());
+        }
+
+        // una tx sin clave propia cuya clave solo se confirmaba en los huerfanos ya no se puede minar
+        for (Transaction tx : txPool.view()) {
+            if (tx.getSenderPublicKey() == null && !getKeyRegistry().contains(tx.getFromAddress()))
+                txPool.remove(tx.getTxId());
+        }
+
+        // lo de los huerfanos que no quedo en la cadena nueva vuelve al pool, validado contra la cadena nueva.
+        // Las recompensas no: eran de los mineros de esos bloques
+        List<Transaction> readmit = new ArrayList<>();
+        for (Block block : orphaned) {
+            for (Transaction tx : block.getTransactions()) {
+                if (tx != null && !isReward(tx) && !confirmed.contains(tx.getTxId()))
+                    readmit.add(tx);
             }
         }
+        if (!readmit.isEmpty()) {
+            int back = addTransactionsToPool(readmit);
+            logger.info("Reorg: " + back + " de " + readmit.size() + " transacciones de bloques huerfanos volvieron al pool");
+        }
+    }
+
+    // Minado de las transacciones pendientes. Recompensa al miner
+    public void minePendingTransactions(Miner miner) {
+        miner.mine(this);
+    }
 
-        // NO contar transacciones pendientes - solo las confirmadas en bloques
-        return balance;
+    // NO cuenta transacciones pendientes - solo las confirmadas en bloques
+    public float getBalance(String address) {
+        return BlockValidator.balanceOf(getChain(), address);
     }
 
     public String deployContract(SmartContract sc) {
@@ -79,20 +328,41 @@ public class Blockchain extends BlockchainCore {
         return contractRegistry.deploy(sc);
     }
 
+    // "esta la tx X en el bloque N?": prueba de inclusion para verificar contra el merkle root de la cabecera
+    // (MerkleProof.verify). null si el bloque no existe o no tiene esa transaccion
+    public MerkleProof getMerkleProof(int blockIndex, String txHash) {
+        List<Block> chain = getChain();
+        if (blockIndex < 0 || blockIndex >= chain.size())
+            return null;
+        return chain.get(blockIndex).getMerkleProof(txHash);
+    }
+
     public boolean isChainValid() {
         return validateChain();
     }
 
+    // dificultad en ceros hex (la que muestran la TUI y la GUI)
     public int getDifficulty() {
-        return difficulty;
+        return getDifficultyBits() / 4;
     }
 
+    // fija la dificultad en ceros hex (apaga el reajuste automatico)
     public void setDifficulty(int newDifficulty) {
         if (newDifficulty > 0) {
-            this.difficulty = newDifficulty;
+            setDifficultyBits(ProofOfWork.hexDigitsToBits(newDifficulty));
         }
     }
 
+    // bits cero iniciales que tiene que tener el proximo bloque
+    public int getDifficultyBits() {
+        return getNextDifficultyBits();
+    }
+
+    // fija la dificultad en bits (apaga el reajuste automatico; ver enableRetargeting)
+    public void setDifficultyBits(int newDifficultyBits) {
+        setFixedDifficultyBits(newDifficultyBits);
+    }
+
     public float getMiningReward() {
         return miningReward;
     }
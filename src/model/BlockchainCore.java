@@ -1,55 +1,135 @@
 package model;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import network.INetworkNode;
 import model.BlockValidator;
 
 public abstract class BlockchainCore {
 
     private List<Block> chain;
-    private int difficulty;
+    // si fixedDifficultyBits > 0 se usa ese valor fijo; si no, el reajuste automatico (DifficultyRetargeter)
+    private volatile int fixedDifficultyBits;
+    // claves publicas reveladas en bloques de esta cadena (ver KeyRegistry); se reemplaza entero con la cadena
+    private volatile KeyRegistry keys = new KeyRegistry();
     private float reward;
     private List<INetworkNode> nodes;
+    // se avisa cada vez que cambia la punta de la cadena (ej. para cortar un minado en curso)
+    private final List<Consumer<Block>> tipListeners = new CopyOnWriteArrayList<>();
 
     public BlockchainCore() {
         this.chain = new ArrayList<>();
         this.nodes = new ArrayList<>();
-        this.difficulty = 2;
+        this.fixedDifficultyBits = 0;
         this.reward = 50f;
 
         Block genesis = new Block(0, new ArrayList<>(), "0", "GENESIS", 0L);
         chain.add(genesis);
     }
 
-    // agregar el bloque con todos los chequeos
-    public void addBlock(Block newBlock) {
-        Block lastBlock = getLastBlock();
+    // agregar el bloque con todos los chequeos. Devuelve false si se rechazo
+    public boolean addBlock(Block newBlock) {
+        if (!acceptBlock(newBlock))
+            return false;
 
-        // ignorar si el bloque es igual al anterior
-        if (newBlock.getHash().equals(lastBlock.getHash())) {
-            System.out.println("Info: bloque ya presente, ignorando.");
-            return;
-        }
+        // ️⃣ sincronizar
+        broadcastBlock(newBlock);
+        return true;
+    }
 
-        // ver si coincide el hash
-        if (!newBlock.getPrevHash().equals(lastBlock.getHash())) {
-            System.out.println("Error: hash previo no coincide. Bloque rechazado.");
-            return;
+    // igual que addBlock pero sin difundir: para bloques que llegan de un peer
+    public boolean acceptBlock(Block newBlock) {
+        synchronized (this) {
+            Block lastBlock = getLastBlock();
+
+            // ignorar si el bloque es igual al anterior
+            if (newBlock.getHash().equals(lastBlock.getHash())) {
+                System.out.println("Info: bloque ya presente, ignorando.");
+                return false;
+            }
+
+            // ver si coincide el hash
+            if (!newBlock.getPrevHash().equals(lastBlock.getHash())) {
+                System.out.println("Error: hash previo no coincide. Bloque rechazado.");
+                return false;
+            }
+
+            // validar si las transacciones son balidas y estructura basica
+            if (!BlockValidator.validateBlockStructure(newBlock)) {
+                System.out.println("Error: bloque inválido (hash o transacciones).");
+                return false;
+            }
+
+            // la dificultad declarada tiene que ser la que corresponde y el hash tiene que cumplirla
+            if (!hasValidDifficulty(newBlock, chain)) {
+                System.out.println("Error: dificultad inválida en bloque #" + newBlock.getIndex() + " ("
+                        + newBlock.getDifficultyBits() + " bits). Bloque rechazado.");
+                return false;
+            }
+
+            // el timestamp alimenta el reajuste de dificultad: tiene que estar dentro de lo que admite la regla
+            if (!BlockValidator.validateTimestamp(newBlock, chain, System.currentTimeMillis())) {
+                System.out.println("Error: timestamp inválido en bloque #" + newBlock.getIndex() + ". Bloque rechazado.");
+                return false;
+            }
+
+            // nadie gasta mas de lo que tiene en la cadena (mas lo que recibe antes en el mismo bloque)
+            if (!BlockValidator.validateBalances(newBlock, new HashMap<>(),
+                    address -> BlockValidator.balanceOf(chain, address))) {
+                System.out.println("Error: saldo insuficiente en bloque #" + newBlock.getIndex() + ". Bloque rechazado.");
+                return false;
+            }
+
+            // firmas al final: es el chequeo caro, no se hace si el bloque ya fallo en algo barato
+            if (!BlockValidator.validateSignatures(newBlock, keys)) {
+                System.out.println("Error: firma inválida en bloque #" + newBlock.getIndex() + ". Bloque rechazado.");
+                return false;
+            }
+
+            // agregar
+            chain.add(newBlock);
+            keys.addRevealed(newBlock.getTransactions());
+            System.out.println("Bloque agregado correctamente con hash: " + newBlock.getHash());
+            onBlockAppended(newBlock);
         }
+        notifyTipChanged(newBlock);
+        return true;
+    }
 
-        // validar si las transacciones son balidas y estructura basica
-        if (!BlockValidator.validateBlockStructure(newBlock)) {
-            System.out.println("Error: bloque inválido (hash o transacciones).");
-            return;
+    // hook para las subclases: se llama con el lock tomado, antes de avisar a los listeners
+    protected void onBlockAppended(Block block) {
+    }
+
+    // Igual, cuando replaceChain cambia la cadena: `orphaned` son los bloques que salieron (en orden) y
+    // `added` los que entraron. Por defecto es como si se hubieran agregado los nuevos uno por uno
+    protected void onChainReplaced(List<Block> orphaned, List<Block> added) {
+        for (Block b : added) {
+            onBlockAppended(b);
         }
+    }
 
-        // agregar
-        chain.add(newBlock);
-        System.out.println("Bloque agregado correctamente con hash: " + newBlock.getHash());
+    public void addTipListener(Consumer<Block> listener) {
+        tipListeners.add(listener);
+    }
 
-        // ️⃣ sincronizar
-        broadcastBlock(newBlock);
+    public void removeTipListener(Consumer<Block> listener) {
+        tipListeners.remove(listener);
+    }
+
+    private void notifyTipChanged(Block newTip) {
+        for (Consumer<Block> listener : tipListeners) {
+            listener.accept(newTip);
+        }
+    }
+
+    // claves confirmadas en esta cadena: contra esto se verifican las tx que no traen la suya
+    public KeyRegistry getKeyRegistry() {
+        return keys;
     }
 
     public Block getLastBlock() {
@@ -58,6 +138,8 @@ public abstract class BlockchainCore {
 
     // validar si la cadena esta bien
     public boolean validateChain() {
+        List<Transaction> allTransactions = new ArrayList<>();
+        Map<String, Float> balances = new HashMap<>();
         for (int i = 1; i < chain.size(); i++) {
             Block current = chain.get(i);
 
@@ -65,20 +147,102 @@ public abstract class BlockchainCore {
                 System.out.println("Error: bloque inválido en posición " + i);
                 return false;
             }
+            // desde el genesis todos arrancan en 0
+            if (!BlockValidator.validateBalances(current, balances, address -> 0f)) {
+                System.out.println("Error: saldo insuficiente en posición " + i);
+                return false;
+            }
+            allTransactions.addAll(current.getTransactions());
+        }
+
+        // cada clave revelada antes (o en el mismo bloque) que las firmas que la usan
+        KeyRegistry replayed = replayKeys(chain, 1, null);
+        // todas las firmas de la cadena en un solo lote
+        if (replayed == null || !SignatureVerifier.getInstance().verifyAll(allTransactions, replayed)) {
+            System.out.println("Error: la cadena tiene firmas inválidas");
+            return false;
         }
 
         System.out.println("Cadena válida (" + chain.size() + " bloques)");
         return true;
     }
 
-    // Importante, si la cadena es mas larga se aumenta la dificultad
-    public void adjustDifficulty() {
-        if (chain.size() % 5 == 0 && difficulty < 5) {
-            difficulty++;
-            System.out.println("Dificultad aumentada a: " + difficulty);
+    // Dificultad (en bits) que tiene que declarar y cumplir el proximo bloque.
+    // Con reajuste automatico sale de los tiempos reales de los ultimos bloques (ver DifficultyRetargeter)
+    public synchronized int getNextDifficultyBits() {
+        int fixed = fixedDifficultyBits;
+        return fixed > 0 ? fixed : DifficultyRetargeter.requiredBits(chain);
+    }
+
+    // timestamp minimo que acepta la regla para el proximo bloque (ver BlockValidator.validateTimestamp)
+    public synchronized long getMinNextTimestamp() {
+        return Math.max(getLastBlock().getTimestamp().getTime(), BlockValidator.medianTimePast(chain) + 1);
+    }
+
+    // altura, padre, dificultad y timestamp minimo del proximo bloque, todo de la misma punta
+    public synchronized ChainTip getTip() {
+        return new ChainTip(chain.size(), getLastBlock(), getNextDifficultyBits(), getMinNextTimestamp());
+    }
+
+    // fija la dificultad a mano y apaga el reajuste automatico
+    public void setFixedDifficultyBits(int bits) {
+        if (bits >= DifficultyRetargeter.MIN_BITS && bits <= ProofOfWork.MAX_BITS) {
+            this.fixedDifficultyBits = bits;
         }
     }
 
+    public void enableRetargeting() {
+        this.fixedDifficultyBits = 0;
+    }
+
+    public boolean isRetargeting() {
+        return fixedDifficultyBits == 0;
+    }
+
+    // Trabajo acumulado de la cadena (suma de 2^bits de cada bloque despues del genesis).
+    // Con dificultad variable es lo que decide entre dos cadenas, no la cantidad de bloques
+    public static BigInteger chainWork(List<Block> blocks) {
+        BigInteger work = BigInteger.ZERO;
+        for (int i = 1; i < blocks.size(); i++) {
+            work = work.add(ProofOfWork.work(blocks.get(i).getDifficultyBits()));
+        }
+        return work;
+    }
+
+    public synchronized BigInteger getChainWork() {
+        return chainWork(chain);
+    }
+
+    // Para un bloque nuevo (no historia que ya tenemos): los bits declarados tienen que estar en
+    // [MIN_BITS, MAX_BITS], el hash tiene que cumplirlos, y tienen que ser lo que exige la regla sobre la
+    // cadena previa (`prefix`). Con dificultad fija, al menos los bits configurados
+    private boolean hasValidDifficulty(Block block, List<Block> prefix) {
+        int bits = block.getDifficultyBits();
+        if (bits < DifficultyRetargeter.MIN_BITS || bits > ProofOfWork.MAX_BITS)
+            return false;
+        if (!ProofOfWork.meetsDifficulty(block.getHash(), bits))
+            return false;
+        int fixed = fixedDifficultyBits;
+        if (fixed > 0)
+            return bits >= fixed;
+        return bits == DifficultyRetargeter.requiredBits(prefix);
+    }
+
+    // Claves de `blocks` (cadena desde el genesis) recorriendola bloque a bloque. Los primeros `trusted` ya se
+    // validaron y sus claves se copian de `known`; en el resto cada firma tiene que tener su clave confirmada
+    // antes o revelada en el mismo bloque, como exige acceptBlock. null si alguna no la tiene
+    private static KeyRegistry replayKeys(List<Block> blocks, int trusted, KeyRegistry known) {
+        KeyRegistry replayed = KeyRegistry.fromChain(blocks.subList(0, trusted), known);
+        SignatureVerifier verifier = SignatureVerifier.getInstance();
+        for (int i = trusted; i < blocks.size(); i++) {
+            List<Transaction> txs = blocks.get(i).getTransactions();
+            if (!verifier.keysAvailable(txs, replayed))
+                return null;
+            replayed.addRevealed(txs);
+        }
+        return replayed;
+    }
+
     // conecta los nodos
     public void broadcastBlock(Block b) {
         if (nodes.isEmpty())
@@ -104,15 +268,35 @@ public abstract class BlockchainCore {
         return chain;
     }
 
-    public void replaceChain(List<Block> newChain) {
-        if (newChain.size() > chain.size()) {
-            // Validar la nueva cadena completa
-            // (Aqui podriamos usar validateChain() pero adaptado para recibir una lista,
-            // por ahora asumimos que si la estructura es valida, confiamos)
-            // En produccion deberiamos validar hash por hash y prevHash.
+    public void replaceChain(List<Block> received) {
+        Block newTip;
+        synchronized (this) {
+            // bloques del principio que ya tenemos (la parte comun con nuestra cadena). De esos se usan los
+            // nuestros, ya validados: de la copia recibida solo se mira el hash
+            int trusted = 0;
+            while (trusted < received.size() && trusted < chain.size()
+                    && chain.get(trusted).getHash().equals(received.get(trusted).getHash())) {
+                trusted++;
+            }
+            if (trusted == 0) {
+                System.out.println("Cadena recibida invalida: genesis distinto");
+                return;
+            }
+            List<Block> newChain = new ArrayList<>(chain.subList(0, trusted));
+            newChain.addAll(received.subList(trusted, received.size()));
 
-            // Validacion basica
-            for (int i = 1; i < newChain.size(); i++) {
+            // gana la cadena con mas trabajo, no la mas larga: muchos bloques faciles no pesan mas que
+            // pocos dificiles. Los bits declarados se validan abajo, bloque por bloque
+            if (chainWork(newChain).compareTo(chainWork(chain)) <= 0)
+                return;
+
+            // cada bloque nuevo con los mismos chequeos que acceptBlock (las firmas van juntas al final)
+            long now = System.currentTimeMillis();
+            List<Transaction> newTransactions = new ArrayList<>();
+            // saldos que van quedando bloque a bloque; cada direccion arranca con su saldo en la parte comun
+            List<Block> common = newChain.subList(0, trusted);
+            Map<String, Float> balances = new HashMap<>();
+            for (int i = trusted; i < newChain.size(); i++) {
                 Block current = newChain.get(i);
                 Block prev = newChain.get(i - 1);
                 if (!current.getPrevHash().equals(prev.getHash())) {
@@ -123,10 +307,42 @@ public abstract class BlockchainCore {
                     System.out.println("Cadena recibida invalida: bloque invalido");
                     return;
                 }
+                if (!BlockValidator.validateTimestamp(current, newChain.subList(0, i), now)) {
+                    System.out.println("Cadena recibida invalida: timestamp incorrecto en bloque #" + i);
+                    return;
+                }
+                if (!hasValidDifficulty(current, newChain.subList(0, i))) {
+                    System.out.println("Cadena recibida invalida: dificultad incorrecta en bloque #" + i);
+                    return;
+                }
+                if (!BlockValidator.validateBalances(current, balances,
+                        address -> BlockValidator.balanceOf(common, address))) {
+                    System.out.println("Cadena recibida invalida: saldo insuficiente en bloque #" + i);
+                    return;
+                }
+                newTransactions.addAll(current.getTransactions());
             }
 
-            this.chain = new ArrayList<>(newChain);
-            System.out.println("Cadena reemplazada por una mas larga y valida. Nueva longitud: " + chain.size());
+            // claves de la cadena nueva: las de la parte comun ya las tenemos, las de los bloques nuevos tienen
+            // que revelarse antes (o en el mismo bloque) que las firmas que las usan
+            KeyRegistry newKeys = replayKeys(newChain, trusted, keys);
+            if (newKeys == null) {
+                System.out.println("Cadena recibida invalida: firma con clave publica desconocida");
+                return;
+            }
+            // las firmas de los bloques que ya teniamos ya se verificaron; las nuevas van en un solo lote
+            if (!SignatureVerifier.getInstance().verifyAll(newTransactions, newKeys)) {
+                System.out.println("Cadena recibida invalida: firmas invalidas");
+                return;
+            }
+            // los bloques nuestros que no estan en la cadena nueva quedan huerfanos
+            List<Block> orphaned = new ArrayList<>(chain.subList(trusted, chain.size()));
+            this.chain = newChain;
+            this.keys = newKeys;
+            onChainReplaced(orphaned, new ArrayList<>(newChain.subList(trusted, newChain.size())));
+            newTip = getLastBlock();
+            System.out.println("Cadena reemplazada por una con mas trabajo y valida. Nueva longitud: " + chain.size());
         }
+        notifyTipChanged(newTip);
     }
 }
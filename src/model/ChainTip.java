@@ -0,0 +1,38 @@
+package model;
+
+// Lo que hace falta para armar el proximo bloque, leido de una sola vez con la cadena bloqueada
+// (ver BlockchainCore.getTip): si entra un bloque en el medio no se mezcla la altura de una punta con el
+// padre o la dificultad de otra.
+public class ChainTip {
+    private final int height;
+    private final Block parent;
+    private final int difficultyBits;
+    private final long minTimestamp;
+
+    public ChainTip(int height, Block parent, int difficultyBits, long minTimestamp) {
+        this.height = height;
+        this.parent = parent;
+        this.difficultyBits = difficultyBits;
+        this.minTimestamp = minTimestamp;
+    }
+
+    // indice del proximo bloque
+    public int getHeight() {
+        return height;
+    }
+
+    // la punta actual: el padre del proximo bloque
+    public Block getParent() {
+        return parent;
+    }
+
+    // bits que tiene que declarar y cumplir el proximo bloque
+    public int getDifficultyBits() {
+        return difficultyBits;
+    }
+
+    // timestamp minimo que acepta la cadena para el proximo bloque
+    public long getMinTimestamp() {
+        return minTimestamp;
+    }
+}
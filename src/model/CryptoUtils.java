@@ -2,74 +2,131 @@ package model;
 
 import java.nio.charset.StandardCharsets;
 import java.security.KeyPair;
-import java.security.KeyPairGenerator;
 import java.security.MessageDigest;
 import java.security.PrivateKey;
 import java.security.PublicKey;
-import java.security.Signature;
+import java.security.SecureRandom;
 import java.util.Base64;
 
 public class CryptoUtils {
 
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    // getInstance() busca el provider en cada llamada; cacheamos una instancia por thread
+    // (MessageDigest no es thread-safe, asi que no se puede compartir)
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(CryptoUtils::newSha256);
+
+    // claves del esquema por defecto (ver SignatureScheme)
     public KeyPair generateKeyPair() {
-        try {
-            KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
-            kpg.initialize(2048);
-            return kpg.generateKeyPair();
-        } catch (Exception e) {
-            throw new RuntimeException("Error generating key pair", e);
-        }
+        return generateKeyPair(SignatureScheme.getDefault());
+    }
+
+    public KeyPair generateKeyPair(SignatureScheme scheme) {
+        return scheme.generateKeyPair();
     }
 
     public KeyPair generateKeyPair(String seed) {
+        return generateKeyPair(SignatureScheme.getDefault(), seed);
+    }
+
+    public KeyPair generateKeyPair(SignatureScheme scheme, String seed) {
         try {
-            KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
-            java.security.SecureRandom random = java.security.SecureRandom.getInstance("SHA1PRNG");
+            SecureRandom random = SecureRandom.getInstance("SHA1PRNG");
             random.setSeed(seed.getBytes(StandardCharsets.UTF_8));
-            kpg.initialize(2048, random);
-            return kpg.generateKeyPair();
+            return scheme.generateKeyPair(random);
         } catch (Exception e) {
             throw new RuntimeException("Error generating deterministic key pair", e);
         }
     }
 
     public String sign(String data, KeyPair keyPair) {
-        try {
-            PrivateKey privateKey = keyPair.getPrivate();
-            Signature sig = Signature.getInstance("SHA256withRSA");
-            sig.initSign(privateKey);
-            sig.update(data.getBytes(StandardCharsets.UTF_8));
-            byte[] signatureBytes = sig.sign();
-            return Base64.getEncoder().encodeToString(signatureBytes);
-        } catch (Exception e) {
-            throw new RuntimeException("Error signing data", e);
-        }
+        byte[] signatureBytes = sign(data.getBytes(StandardCharsets.UTF_8), keyPair.getPrivate());
+        return Base64.getEncoder().encodeToString(signatureBytes);
     }
 
     public boolean verify(String data, String signature, KeyPair keyPair) {
+        byte[] signatureBytes = Base64.getDecoder().decode(signature);
+        return verify(data.getBytes(StandardCharsets.UTF_8), signatureBytes, keyPair.getPublic());
+    }
+
+    public String hash(String data) {
+        return toHex(sha256(data.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // --- API en bytes con instancias cacheadas por thread ---
+
+    // el algoritmo sale de la clave: RSA, ECDSA o Ed25519
+    public static byte[] sign(byte[] data, PrivateKey privateKey) {
+        return SignatureScheme.forKey(privateKey).sign(data, privateKey);
+    }
+
+    public static boolean verify(byte[] data, byte[] signature, PublicKey publicKey) {
+        return SignatureScheme.forKey(publicKey).verify(data, signature, publicKey);
+    }
+
+    public static byte[] sha256(byte[] data) {
+        return sha256Digest().digest(data);
+    }
+
+    // hash de la concatenacion left || right sin armar un array intermedio (nodos del merkle)
+    public static byte[] sha256(byte[] left, byte[] right) {
+        MessageDigest md = sha256Digest();
+        md.update(left);
+        md.update(right);
+        return md.digest();
+    }
+
+    // digest SHA-256 del thread actual, ya reseteado. No guardarlo ni pasarlo a otro thread
+    public static MessageDigest sha256Digest() {
+        MessageDigest md = SHA256.get();
+        md.reset();
+        return md;
+    }
+
+    public static MessageDigest newSha256() {
         try {
-            PublicKey publicKey = keyPair.getPublic();
-            Signature sig = Signature.getInstance("SHA256withRSA");
-            sig.initVerify(publicKey);
-            sig.update(data.getBytes(StandardCharsets.UTF_8));
-            byte[] signatureBytes = Base64.getDecoder().decode(signature);
-            return sig.verify(signatureBytes);
+            return MessageDigest.getInstance("SHA-256");
         } catch (Exception e) {
-            throw new RuntimeException("Error verifying signature", e);
+            throw new RuntimeException("SHA-256 no disponible", e);
         }
     }
 
-    public String hash(String data) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] digest = md.digest(data.getBytes(StandardCharsets.UTF_8));
-            StringBuilder sb = new StringBuilder(digest.length * 2);
-            for (byte b : digest) {
-                sb.append(String.format("%02x", b & 0xff));
+    // hex en minusculas con tabla, sin String.format por byte
+    public static String toHex(byte[] bytes) {
+        char[] out = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int v = bytes[i] & 0xff;
+            out[i * 2] = HEX[v >>> 4];
+            out[i * 2 + 1] = HEX[v & 0x0f];
+        }
+        return new String(out);
+    }
+
+    public static byte[] fromHex(String hex) {
+        if (hex.length() % 2 != 0)
+            throw new IllegalArgumentException("Hex de longitud impar");
+        byte[] out = new byte[hex.length() / 2];
+        for (int i = 0; i < out.length; i++) {
+            int hi = Character.digit(hex.charAt(i * 2), 16);
+            int lo = Character.digit(hex.charAt(i * 2 + 1), 16);
+            if (hi < 0 || lo < 0)
+                throw new IllegalArgumentException("Caracter hex invalido en: " + hex);
+            out[i] = (byte) ((hi << 4) | lo);
+        }
+        return out;
+    }
+
+    // Lleva un hash en texto a 32 bytes para la cabecera binaria:
+    // vacio -> ceros, hex de 64 chars -> sus bytes, cualquier otro valor (ej. "0" del genesis) -> su SHA-256
+    public static byte[] toHash32(String value) {
+        if (value == null || value.isEmpty())
+            return new byte[32];
+        if (value.length() == 64) {
+            try {
+                return fromHex(value);
+            } catch (IllegalArgumentException ignored) {
+                // no era hex, cae al SHA-256
             }
-            return sb.toString();
-        } catch (Exception e) {
-            throw new RuntimeException("Error hashing data", e);
         }
+        return sha256(value.getBytes(StandardCharsets.UTF_8));
     }
 }
@@ -0,0 +1,52 @@
+package model;
+
+import java.util.List;
+
+// Reajuste de dificultad por ventana de tiempo.
+// Mira los ultimos WINDOW intervalos entre bloques minados y calcula cuanto trabajo hay que pedir
+// para que el proximo bloque salga cada TARGET_BLOCK_TIME_MS:
+//   trabajoNuevo = trabajoPromedioDeLaVentana * tiempoEsperado / tiempoReal   (trabajo = 2^bits)
+// El resultado se redondea a bits y se limita a +-MAX_STEP_BITS respecto del bloque anterior,
+// para que un par de bloques con timestamps raros no disparen la dificultad.
+// Solo depende de datos de la cadena (bits registrados y timestamps, que BlockValidator.validateTimestamp
+// acota) y de estas constantes, asi que cualquier nodo recalcula el mismo valor para validar un bloque
+// recibido. Son reglas de consenso: no se configuran por nodo, cambiarlas en uno solo lo separa de la red.
+public final class DifficultyRetargeter {
+    public static final long TARGET_BLOCK_TIME_MS = 10_000;
+    public static final int WINDOW = 10;
+    public static final int MAX_STEP_BITS = 2;
+    public static final int MIN_BITS = 1;
+    // dificultad mientras no haya historia suficiente (12 bits = "000")
+    public static final int INITIAL_BITS = 12;
+
+    private DifficultyRetargeter() {
+    }
+
+    // bits que tiene que declarar (y cumplir) el bloque que va en la posicion chain.size()
+    public static int requiredBits(List<Block> chain) {
+        int n = chain.size();
+        Block tip = chain.get(n - 1);
+        int prevBits = tip.getIndex() == 0 ? INITIAL_BITS : tip.getDifficultyBits();
+
+        // el genesis tiene timestamp fijo, asi que la ventana arranca como minimo en el bloque 1
+        int first = Math.max(1, n - 1 - WINDOW);
+        int intervals = (n - 1) - first;
+        if (intervals < 1)
+            return prevBits;
+
+        long actualMs = tip.getTimestamp().getTime() - chain.get(first).getTimestamp().getTime();
+        if (actualMs < 1)
+            actualMs = 1;
+
+        double totalWork = 0;
+        for (int i = first + 1; i < n; i++) {
+            totalWork += Math.pow(2, chain.get(i).getDifficultyBits());
+        }
+        double averageWork = totalWork / intervals;
+        double nextWork = averageWork * ((double) TARGET_BLOCK_TIME_MS * intervals) / actualMs;
+        int bits = (int) Math.round(Math.log(nextWork) / Math.log(2));
+
+        bits = Math.max(prevBits - MAX_STEP_BITS, Math.min(prevBits + MAX_STEP_BITS, bits));
+        return Math.max(MIN_BITS, Math.min(ProofOfWork.MAX_BITS, bits));
+    }
+}
@@ -0,0 +1,102 @@
+package model;
+
+import java.security.PublicKey;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Diccionario direccion -> clave publica de UNA cadena.
+// Las direcciones son cortas (hash de la clave, ver addressOf); la clave completa viaja en las transacciones
+// de una direccion hasta que una de ellas queda confirmada en un bloque, y desde ahi la verificacion de
+// firmas la busca aca. Solo se registran claves de bloques confirmados (ver BlockchainCore): lo que pasa por
+// el mempool no escribe nada, asi dos nodos con la misma cadena tienen el mismo registro y un nodo que
+// arranca de cero lo reconstruye desde los bloques (fromChain).
+// Guarda la clave ya decodificada: verificar no vuelve a parsear el X.509.
+public class KeyRegistry {
+    // 20 bytes de sha256(clave X.509), en hex (40 caracteres)
+    public static final int ADDRESS_BYTES = 20;
+
+    private final Map<String, PublicKey> keys = new ConcurrentHashMap<>();
+
+    // Registro de las claves reveladas en `blocks`. Las que ya estan en `known` se copian sin volver a
+    // decodificarlas (ej. al reemplazar la cadena, lo que comparte con la anterior)
+    public static KeyRegistry fromChain(List<Block> blocks, KeyRegistry known) {
+        KeyRegistry registry = new KeyRegistry();
+        for (Block block : blocks) {
+            for (Transaction tx : block.getTransactions()) {
+                if (tx == null || tx.getSenderPublicKey() == null || registry.contains(tx.getFromAddress()))
+                    continue;
+                PublicKey key = known == null ? null : known.lookup(tx.getFromAddress());
+                if (key != null) {
+                    registry.keys.put(tx.getFromAddress(), key);
+                } else {
+                    registry.registerQuietly(tx);
+                }
+            }
+        }
+        return registry;
+    }
+
+    // direccion corta de una clave publica (bytes X.509)
+    public static String addressOf(byte[] publicKey) {
+        byte[] hash = CryptoUtils.sha256(publicKey);
+        byte[] address = new byte[ADDRESS_BYTES];
+        System.arraycopy(hash, 0, address, 0, ADDRESS_BYTES);
+        return CryptoUtils.toHex(address);
+    }
+
+    public static String addressOf(PublicKey publicKey) {
+        return addressOf(publicKey.getEncoded());
+    }
+
+    // Decodifica la clave (X.509 en base64) si corresponde a `address`, sin registrarla.
+    // Tira IllegalArgumentException si no es una clave valida o es de otra direccion
+    public static PublicKey decode(String address, String publicKey) {
+        byte[] encoded = Base64.getDecoder().decode(publicKey);
+        if (!addressOf(encoded).equals(address))
+            throw new IllegalArgumentException("La clave publica no corresponde a la direccion " + address);
+        return SignatureScheme.decodeAddressKey(encoded);
+    }
+
+    // Registra la clave si corresponde a `address`. Devuelve la clave decodificada,
+    // o tira IllegalArgumentException si no es una clave valida o es de otra direccion
+    public PublicKey register(String address, String publicKey) {
+        PublicKey known = keys.get(address);
+        if (known != null)
+            return known;
+        PublicKey key = decode(address, publicKey);
+        keys.putIfAbsent(address, key);
+        return key;
+    }
+
+    // registra las claves que revelan las transacciones de un bloque ya validado
+    public void addRevealed(Collection<Transaction> confirmed) {
+        for (Transaction tx : confirmed) {
+            if (tx != null && tx.getSenderPublicKey() != null && !contains(tx.getFromAddress()))
+                registerQuietly(tx);
+        }
+    }
+
+    // clave de la direccion, o null si todavia no se confirmo ninguna tx que la revele
+    public PublicKey lookup(String address) {
+        return address == null ? null : keys.get(address);
+    }
+
+    public boolean contains(String address) {
+        return address != null && keys.containsKey(address);
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    private void registerQuietly(Transaction tx) {
+        try {
+            register(tx.getFromAddress(), tx.getSenderPublicKey());
+        } catch (RuntimeException e) {
+            // una clave que no corresponde no llega a un bloque valido (la firma no verifica); se ignora
+        }
+    }
+}
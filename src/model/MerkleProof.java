@@ -0,0 +1,108 @@
+package model;
+
+import java.io.Serializable;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// Prueba de inclusion (rama merkle) de una transaccion en un bloque.
+// Lleva el hash de la hoja, su posicion, cuantas hojas tenia el arbol y los hermanos de cada nivel
+// desde la hoja hasta la raiz: con eso se recalcula la raiz en O(log n) hashes, sin bajar el bloque entero.
+// Si un nivel tenia cantidad impar y el nodo era el ultimo, el "hermano" es el mismo nodo (igual que al armar el arbol).
+public class MerkleProof implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final byte[] leaf;
+    private final int index;
+    private final int leafCount;
+    private final List<byte[]> siblings;
+
+    public MerkleProof(byte[] leaf, int index, int leafCount, List<byte[]> siblings) {
+        this.leaf = leaf.clone();
+        this.index = index;
+        this.leafCount = leafCount;
+        this.siblings = new ArrayList<>(siblings.size());
+        for (byte[] s : siblings) {
+            this.siblings.add(s.clone());
+        }
+    }
+
+    // Chequea que la prueba lleve a `merkleRoot` (hex, como lo guarda el bloque)
+    public static boolean verify(MerkleProof proof, String merkleRoot) {
+        if (proof == null || merkleRoot == null || merkleRoot.isEmpty())
+            return false;
+        try {
+            return verify(proof, CryptoUtils.fromHex(merkleRoot));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    public static boolean verify(MerkleProof proof, byte[] merkleRoot) {
+        if (proof == null || merkleRoot == null)
+            return false;
+        byte[] computed = proof.computeRoot();
+        return computed != null && MessageDigest.isEqual(computed, merkleRoot);
+    }
+
+    // Igual que verify, pero ademas exige que la hoja sea la transaccion que se pregunta (txid en hex)
+    public static boolean verify(String txHash, MerkleProof proof, String merkleRoot) {
+        return proof != null && txHash != null && txHash.equalsIgnoreCase(proof.getLeafHex())
+                && verify(proof, merkleRoot);
+    }
+
+    // Raiz que resulta de subir desde la hoja, o null si la prueba no es coherente con
+    // la cantidad de hojas (posicion fuera de rango o cantidad de niveles equivocada)
+    public byte[] computeRoot() {
+        if (index < 0 || index >= leafCount || siblings.size() != depth(leafCount))
+            return null;
+        byte[] node = leaf;
+        int idx = index;
+        int width = leafCount;
+        for (byte[] sibling : siblings) {
+            boolean last = idx == width - 1 && width % 2 == 1;
+            if (last && !Arrays.equals(sibling, node))
+                return null;
+            node = (idx % 2 == 0) ? CryptoUtils.sha256(node, sibling) : CryptoUtils.sha256(sibling, node);
+            idx /= 2;
+            width = (width + 1) / 2;
+        }
+        return node;
+    }
+
+    // niveles por encima de las hojas para un arbol de `leafCount` hojas
+    static int depth(int leafCount) {
+        int d = 0;
+        for (int n = leafCount; n > 1; n = (n + 1) / 2) {
+            d++;
+        }
+        return d;
+    }
+
+    public byte[] getLeaf() {
+        return leaf.clone();
+    }
+
+    public String getLeafHex() {
+        return CryptoUtils.toHex(leaf);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getLeafCount() {
+        return leafCount;
+    }
+
+    public List<byte[]> getSiblings() {
+        return Collections.unmodifiableList(siblings);
+    }
+
+    // bytes que ocupa la prueba en crudo (hoja + hermanos), para comparar contra mandar el bloque
+    public int sizeInBytes() {
+        return BlockHeader.HASH_SIZE * (1 + siblings.size()) + 8;
+    }
+}
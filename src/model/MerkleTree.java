@@ -0,0 +1,174 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+// Merkle tree con todos los nodos guardados como bytes crudos, nivel por nivel (levels[0] = hojas).
+// Misma regla que siempre: nodo = sha256(izq || der) y si un nivel tiene cantidad impar
+// el ultimo se hashea consigo mismo.
+// Agregar, reemplazar o recortar hojas solo rehashea el camino hasta la raiz (O(log n)),
+// asi un template de bloque puede ir sumando transacciones sin rearmar el arbol entero.
+// No es thread-safe: quien lo modifica tiene que ser su unico dueño (ver copy()).
+// Armarlo de cero (build / ofTransactions) reparte entre nucleos el hasheo de las hojas y de cada nivel
+// que tenga al menos `parallelThreshold` nodos; cada resultado va a su posicion, asi que la raiz
+// es la misma bit a bit que la serie. Los niveles chicos se hacen en serie (no vale el costo de repartir).
+public class MerkleTree {
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 512;
+
+    private static volatile int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
+    private final List<List<byte[]>> levels;
+
+    public MerkleTree() {
+        this.levels = new ArrayList<>();
+        this.levels.add(new ArrayList<>());
+    }
+
+    private MerkleTree(List<List<byte[]>> levels) {
+        this.levels = levels;
+    }
+
+    // arma el arbol completo de una vez, nivel por nivel
+    public static MerkleTree build(List<byte[]> leafHashes) {
+        List<List<byte[]>> levels = new ArrayList<>();
+        List<byte[]> layer = new ArrayList<>(leafHashes);
+        levels.add(layer);
+        while (layer.size() > 1) {
+            List<byte[]> current = layer;
+            byte[][] next = new byte[(current.size() + 1) / 2][];
+            range(next.length).forEach(p -> {
+                byte[] left = current.get(2 * p);
+                byte[] right = 2 * p + 1 < current.size() ? current.get(2 * p + 1) : left;
+                next[p] = CryptoUtils.sha256(left, right);
+            });
+            layer = new ArrayList<>(Arrays.asList(next));
+            levels.add(layer);
+        }
+        return new MerkleTree(levels);
+    }
+
+    public static MerkleTree ofTransactions(List<Transaction> transactions) {
+        byte[][] leaves = new byte[transactions.size()][];
+        range(leaves.length).forEach(i -> leaves[i] = transactions.get(i).calculateHashBytes());
+        return build(Arrays.asList(leaves));
+    }
+
+    // en paralelo solo si hay trabajo suficiente; sha256 usa un digest por thread, asi que es seguro
+    private static IntStream range(int n) {
+        IntStream stream = IntStream.range(0, n);
+        return n >= parallelThreshold ? stream.parallel() : stream;
+    }
+
+    public static int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    // cantidad minima de nodos de un nivel para hashearlo en paralelo
+    public static void setParallelThreshold(int threshold) {
+        if (threshold > 0) {
+            parallelThreshold = threshold;
+        }
+    }
+
+    public int size() {
+        return levels.get(0).size();
+    }
+
+    public byte[] getLeaf(int index) {
+        return levels.get(0).get(index).clone();
+    }
+
+    // raiz en bytes, o null si el arbol esta vacio
+    public byte[] getRoot() {
+        List<byte[]> top = levels.get(levels.size() - 1);
+        return top.isEmpty() ? null : top.get(0).clone();
+    }
+
+    // raiz en hex; "" si esta vacio (asi lo venia representando Block)
+    public String getRootHex() {
+        byte[] root = getRoot();
+        return root == null ? "" : CryptoUtils.toHex(root);
+    }
+
+    public void append(byte[] leafHash) {
+        levels.get(0).add(leafHash.clone());
+        recomputePath(size() - 1);
+    }
+
+    public void replace(int index, byte[] leafHash) {
+        levels.get(0).set(index, leafHash.clone());
+        recomputePath(index);
+    }
+
+    // deja solo las primeras `newSize` hojas
+    public void truncate(int newSize) {
+        List<byte[]> leaves = levels.get(0);
+        if (newSize >= leaves.size())
+            return;
+        if (newSize == 0) {
+            levels.clear();
+            levels.add(new ArrayList<>());
+            return;
+        }
+        leaves.subList(newSize, leaves.size()).clear();
+        recomputePath(newSize - 1);
+    }
+
+    // rama de la hoja `index` hasta la raiz (hermano de cada nivel; el mismo nodo si quedo impar al final)
+    public MerkleProof proof(int index) {
+        if (index < 0 || index >= size())
+            throw new IndexOutOfBoundsException("Hoja fuera de rango: " + index);
+        List<byte[]> siblings = new ArrayList<>(levels.size() - 1);
+        int idx = index;
+        for (int l = 0; l < levels.size() - 1; l++) {
+            List<byte[]> level = levels.get(l);
+            int sibling = idx ^ 1;
+            siblings.add(sibling < level.size() ? level.get(sibling) : level.get(idx));
+            idx /= 2;
+        }
+        return new MerkleProof(levels.get(0).get(index), index, size(), siblings);
+    }
+
+    // copia independiente (comparte los byte[], que nunca se modifican en el lugar)
+    public MerkleTree copy() {
+        List<List<byte[]>> copy = new ArrayList<>(levels.size());
+        for (List<byte[]> level : levels) {
+            copy.add(new ArrayList<>(level));
+        }
+        return new MerkleTree(copy);
+    }
+
+    // Rehashea los ancestros de la hoja `index`. De paso ajusta el tamaño de cada nivel padre a
+    // ceil(hijos / 2) (crece al agregar, se achica al recortar) y saca los niveles que sobran arriba.
+    private void recomputePath(int index) {
+        int idx = index;
+        for (int l = 0;; l++) {
+            List<byte[]> level = levels.get(l);
+            if (level.size() <= 1) {
+                while (levels.size() > l + 1) {
+                    levels.remove(levels.size() - 1);
+                }
+                return;
+            }
+            if (levels.size() == l + 1)
+                levels.add(new ArrayList<>());
+            List<byte[]> parent = levels.get(l + 1);
+            int parentSize = (level.size() + 1) / 2;
+            if (parent.size() > parentSize)
+                parent.subList(parentSize, parent.size()).clear();
+
+            int p = idx / 2;
+            byte[] left = level.get(2 * p);
+            byte[] right = 2 * p + 1 < level.size() ? level.get(2 * p + 1) : left;
+            byte[] hash = CryptoUtils.sha256(left, right);
+            if (p < parent.size()) {
+                parent.set(p, hash);
+            } else {
+                parent.add(hash);
+            }
+            idx = p;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package model;
+
+import java.math.BigInteger;
+
+// Chequeo de dificultad del PoW directamente sobre el digest de 32 bytes.
+// La dificultad se expresa en bits cero iniciales: 4 bits equivalen a un "0" del hash en hex,
+// asi que se puede ajustar en pasos de x2 en lugar de x16.
+public final class ProofOfWork {
+
+    public static final int MAX_BITS = BlockHeader.HASH_SIZE * 8;
+
+    private ProofOfWork() {
+    }
+
+    // trabajo esperado para cumplir `bits`: 2^bits hashes. Es lo que se suma para comparar cadenas
+    public static BigInteger work(int bits) {
+        return BigInteger.ONE.shiftLeft(Math.max(0, bits));
+    }
+
+    public static int hexDigitsToBits(int hexDigits) {
+        return hexDigits * 4;
+    }
+
+    // cantidad de bits cero al principio del hash
+    public static int leadingZeroBits(byte[] hash) {
+        int bits = 0;
+        for (byte b : hash) {
+            int v = b & 0xff;
+            if (v != 0)
+                return bits + Integer.numberOfLeadingZeros(v) - 24;
+            bits += 8;
+        }
+        return bits;
+    }
+
+    // true si el hash tiene al menos `bits` bits cero iniciales; corta en el primer byte que falla
+    public static boolean meetsDifficulty(byte[] hash, int bits) {
+        int fullBytes = bits >>> 3;
+        for (int i = 0; i < fullBytes; i++) {
+            if (hash[i] != 0)
+                return false;
+        }
+        int rest = bits & 7;
+        return rest == 0 || ((hash[fullBytes] & 0xff) >>> (8 - rest)) == 0;
+    }
+
+    public static boolean meetsDifficulty(String hexHash, int bits) {
+        if (hexHash == null || hexHash.length() != BlockHeader.HASH_SIZE * 2)
+            return false;
+        return meetsDifficulty(CryptoUtils.fromHex(hexHash), bits);
+    }
+}
@@ -0,0 +1,82 @@
+package model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Transacciones cuya firma ya se verifico bien, para no volver a verificarlas cuando la misma tx
+// aparece en el pool, despues dentro de un bloque y despues en replaceChain / validateChain.
+// La clave es el txid: se calcula sobre la codificacion completa, firma incluida, asi que
+// otra firma para los mismos datos da otro txid y no le sirve la entrada de la primera.
+// Solo se guardan resultados validos (uno invalido no se reintenta en un bloque bueno).
+// Acotado con LRU: LinkedHashMap en orden de acceso que descarta la mas vieja al pasarse.
+public class SignatureCache {
+    public static final int DEFAULT_CAPACITY = 100_000;
+
+    private final int capacity;
+    private final Map<String, Boolean> verified;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public SignatureCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public SignatureCache(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("La capacidad tiene que ser positiva");
+        this.capacity = capacity;
+        this.verified = new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > SignatureCache.this.capacity;
+            }
+        };
+    }
+
+    // true si la firma de esta tx ya se verifico (y la marca como usada recientemente)
+    public boolean contains(Transaction tx) {
+        boolean hit;
+        synchronized (verified) {
+            hit = verified.get(tx.getTxId()) != null;
+        }
+        if (hit) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return hit;
+    }
+
+    public void markVerified(Transaction tx) {
+        synchronized (verified) {
+            verified.put(tx.getTxId(), Boolean.TRUE);
+        }
+    }
+
+    public int size() {
+        synchronized (verified) {
+            return verified.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (verified) {
+            verified.clear();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+}
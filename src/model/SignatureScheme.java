@@ -0,0 +1,178 @@
+package model;
+
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.X509EncodedKeySpec;
+
+// Esquemas de firma soportados. La direccion de una wallet es su clave publica en X.509, que ya dice
+// de que algoritmo es (el OID va al principio), asi que cualquier nodo sabe con que esquema verificar
+// sin que la transaccion lo aclare.
+//   RSA     2048 bits, el original: keygen lento (~100 ms), firmas de 256 bytes, direcciones de 294 bytes
+//   ECDSA   P-256: firmas de ~72 bytes, direcciones de 91 bytes
+//   ED25519 el mas rapido para generar, firmar y verificar: firmas de 64 bytes, direcciones de 44 bytes
+// Los algoritmos se piden por nombre: Ed25519 esta desde Java 15, en una JVM mas vieja queda no disponible
+// y el default cae a ECDSA.
+public enum SignatureScheme {
+    RSA("RSA", "SHA256withRSA", new byte[] { 0x06, 0x09, 0x2A, (byte) 0x86, 0x48, (byte) 0x86, (byte) 0xF7, 0x0D, 0x01, 0x01, 0x01 }),
+    ECDSA("EC", "SHA256withECDSA", new byte[] { 0x06, 0x07, 0x2A, (byte) 0x86, 0x48, (byte) 0xCE, 0x3D, 0x02, 0x01 }),
+    ED25519("Ed25519", "Ed25519", new byte[] { 0x06, 0x03, 0x2B, 0x65, 0x70 });
+
+    private static final int RSA_BITS = 2048;
+    private static final String EC_CURVE = "secp256r1";
+
+    private static volatile SignatureScheme defaultScheme = ED25519.isAvailable() ? ED25519 : ECDSA;
+
+    private final String keyAlgorithm;
+    private final String signatureAlgorithm;
+    // OID del algoritmo tal como aparece (DER) en la clave publica X.509
+    private final byte[] oid;
+    // getInstance() busca el provider en cada llamada; una instancia por thread (no son thread-safe)
+    private final ThreadLocal<Signature> signature;
+    private final ThreadLocal<KeyFactory> keyFactory;
+
+    SignatureScheme(String keyAlgorithm, String signatureAlgorithm, byte[] oid) {
+        this.keyAlgorithm = keyAlgorithm;
+        this.signatureAlgorithm = signatureAlgorithm;
+        this.oid = oid;
+        this.signature = ThreadLocal.withInitial(() -> {
+            try {
+                return Signature.getInstance(signatureAlgorithm);
+            } catch (Exception e) {
+                throw new RuntimeException(signatureAlgorithm + " no disponible", e);
+            }
+        });
+        this.keyFactory = ThreadLocal.withInitial(() -> {
+            try {
+                return KeyFactory.getInstance(keyAlgorithm);
+            } catch (Exception e) {
+                throw new RuntimeException(keyAlgorithm + " no disponible", e);
+            }
+        });
+    }
+
+    // esquema con el que se crean las wallets nuevas
+    public static SignatureScheme getDefault() {
+        return defaultScheme;
+    }
+
+    public static void setDefault(SignatureScheme scheme) {
+        if (scheme == null || !scheme.isAvailable())
+            throw new IllegalArgumentException("Esquema de firma no disponible en esta JVM: " + scheme);
+        defaultScheme = scheme;
+    }
+
+    public boolean isAvailable() {
+        try {
+            KeyPairGenerator.getInstance(keyAlgorithm);
+            Signature.getInstance(signatureAlgorithm);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    public KeyPair generateKeyPair() {
+        return generateKeyPair(new SecureRandom());
+    }
+
+    // misma semilla, mismas claves (wallets deterministicas)
+    public KeyPair generateKeyPair(SecureRandom random) {
+        try {
+            KeyPairGenerator kpg = KeyPairGenerator.getInstance(keyAlgorithm);
+            switch (this) {
+                case RSA:
+                    kpg.initialize(RSA_BITS, random);
+                    break;
+                case ECDSA:
+                    kpg.initialize(new ECGenParameterSpec(EC_CURVE), random);
+                    break;
+                default:
+                    kpg.initialize(255, random);
+                    break;
+            }
+            return kpg.generateKeyPair();
+        } catch (Exception e) {
+            throw new RuntimeException("Error generando claves " + this, e);
+        }
+    }
+
+    public byte[] sign(byte[] data, PrivateKey privateKey) {
+        try {
+            Signature sig = signature.get();
+            sig.initSign(privateKey);
+            sig.update(data);
+            return sig.sign();
+        } catch (Exception e) {
+            throw new RuntimeException("Error signing data", e);
+        }
+    }
+
+    public boolean verify(byte[] data, byte[] sigBytes, PublicKey publicKey) {
+        try {
+            Signature sig = signature.get();
+            sig.initVerify(publicKey);
+            sig.update(data);
+            return sig.verify(sigBytes);
+        } catch (Exception e) {
+            throw new RuntimeException("Error verifying signature", e);
+        }
+    }
+
+    public PublicKey decodePublicKey(byte[] x509) {
+        try {
+            return keyFactory.get().generatePublic(new X509EncodedKeySpec(x509));
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Clave publica " + this + " invalida", e);
+        }
+    }
+
+    // esquema de una clave ya armada ("EdDSA" es como las reporta el provider de Ed25519)
+    public static SignatureScheme forKey(Key key) {
+        switch (key.getAlgorithm()) {
+            case "RSA":
+                return RSA;
+            case "EC":
+                return ECDSA;
+            case "EdDSA":
+            case "Ed25519":
+                return ED25519;
+            default:
+                throw new IllegalArgumentException("Algoritmo de clave no soportado: " + key.getAlgorithm());
+        }
+    }
+
+    // esquema de una clave publica X.509 mirando el OID del algoritmo en la cabecera
+    public static SignatureScheme forPublicKey(byte[] x509) {
+        for (SignatureScheme scheme : values()) {
+            if (scheme.matches(x509))
+                return scheme;
+        }
+        throw new IllegalArgumentException("Clave publica de algoritmo desconocido");
+    }
+
+    // la clave publica tiene que poder decodificarse con su propio esquema
+    public static PublicKey decodeAddressKey(byte[] x509) {
+        return forPublicKey(x509).decodePublicKey(x509);
+    }
+
+    // el OID va en el AlgorithmIdentifier, dentro de los primeros bytes de la estructura
+    private boolean matches(byte[] x509) {
+        int limit = Math.min(x509.length - oid.length, 8);
+        for (int start = 0; start <= limit; start++) {
+            boolean match = true;
+            for (int i = 0; i < oid.length && match; i++) {
+                match = x509[start + i] == oid[i];
+            }
+            if (match)
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,273 @@
+package model;
+
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import utils.Logger;
+
+// Verificacion real de firmas: la clave del emisor sale del KeyRegistry de la cadena contra la que se valida
+// (claves ya confirmadas) o de las tx del mismo lote que la revelan y hashean a fromAddress, y se verifica la
+// firma contra la preimagen canonica de la tx, con el esquema que indique la propia clave (ver SignatureScheme).
+// Verificar no escribe en el registro: eso pasa recien cuando el bloque entra a la cadena.
+// Verificar es caro (sobre todo RSA), por eso los lotes (un bloque entero, varias tx que entran al pool) se reparten
+// en partes contiguas entre un pool fijo de workers, uno por nucleo. Los lotes chicos se verifican en el
+// thread del llamador porque el traspaso cuesta mas que la verificacion.
+// Las recompensas (fromAddress == null) no llevan firma y siempre pasan.
+// Las firmas que ya dieron bien quedan en un SignatureCache: cada tx se verifica una vez en la vida del
+// nodo, y de un lote solo se reparte entre los workers lo que todavia no se vio. El cache no reemplaza
+// tener la clave: una tx sin clave propia cuya clave ya no esta en la cadena (ej. tras un reorg) no pasa.
+public class SignatureVerifier {
+    // por debajo de esto por worker no conviene repartir
+    private static final int MIN_PER_WORKER = 4;
+
+    private static SignatureVerifier instance;
+
+    private final int workers;
+    private final ExecutorService pool;
+    private final SignatureCache cache;
+    private final Logger logger;
+
+    public SignatureVerifier(int workers) {
+        this(workers, new SignatureCache());
+    }
+
+    public SignatureVerifier(int workers, SignatureCache cache) {
+        if (workers < 1)
+            throw new IllegalArgumentException("Se necesita al menos un worker");
+        this.workers = workers;
+        this.cache = cache;
+        this.logger = Logger.getInstance();
+        AtomicInteger threadId = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "SignatureVerifier-" + threadId.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // verificador compartido por la validacion de bloques y la admision al pool
+    public static synchronized SignatureVerifier getInstance() {
+        if (instance == null) {
+            instance = new SignatureVerifier(Runtime.getRuntime().availableProcessors());
+        }
+        return instance;
+    }
+
+    // una sola transaccion, en el thread actual
+    public boolean verify(Transaction tx, KeyRegistry keys) {
+        if (tx == null)
+            return false;
+        if (tx.getFromAddress() == null)
+            return true;
+        Map<String, PublicKey> revealed = reveal(List.of(tx), keys);
+        if (cache.contains(tx))
+            return hasKey(tx, keys, revealed);
+        return check(tx, keys, revealed);
+    }
+
+    // true si cada tx firmada del lote tiene con que verificarse: su propia clave, una confirmada en `keys`
+    // o la que revela otra tx del lote. No verifica firmas (ej. para exigir el orden de revelado bloque a bloque)
+    public boolean keysAvailable(Collection<Transaction> txs, KeyRegistry keys) {
+        Map<String, PublicKey> revealed = reveal(txs, keys);
+        for (Transaction tx : txs) {
+            if (tx != null && tx.getFromAddress() != null && !hasKey(tx, keys, revealed))
+                return false;
+        }
+        return true;
+    }
+
+    // verificacion real (sin mirar el cache); si da bien queda anotada
+    private boolean check(Transaction tx, KeyRegistry keys, Map<String, PublicKey> revealed) {
+        if (tx.getSignature() == null)
+            return false;
+        try {
+            // si trae clave tiene que ser la de su direccion, aunque otra tx ya la haya revelado bien
+            if (tx.getSenderPublicKey() != null && !KeyRegistry.addressOf(
+                    Base64.getDecoder().decode(tx.getSenderPublicKey())).equals(tx.getFromAddress()))
+                return false;
+            PublicKey key = keys.lookup(tx.getFromAddress());
+            if (key == null)
+                key = revealed.get(tx.getFromAddress());
+            if (key == null) {
+                logger.debug("Clave publica desconocida para " + tx.getFromAddress() + " (tx " + tx.getTxId() + ")");
+                return false;
+            }
+            byte[] signature = Base64.getDecoder().decode(tx.getSignature());
+            boolean ok = CryptoUtils.verify(tx.getSigningPreimage(), signature, key);
+            if (ok)
+                cache.markVerified(tx);
+            return ok;
+        } catch (RuntimeException e) {
+            // clave o firma mal formadas: la tx es invalida, no un error del nodo
+            logger.debug("Firma no verificable en tx " + tx.getTxId() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    // true si todas las firmas del lote son validas (corta en cuanto una falla)
+    public boolean verifyAll(Collection<Transaction> txs, KeyRegistry keys) {
+        Map<String, PublicKey> revealed = reveal(txs, keys);
+        List<Transaction> batch = new ArrayList<>(txs.size());
+        for (Transaction tx : txs) {
+            if (tx == null)
+                return false;
+            if (tx.getFromAddress() == null)
+                continue;
+            if (!cache.contains(tx)) {
+                batch.add(tx);
+            } else if (!hasKey(tx, keys, revealed)) {
+                return false;
+            }
+        }
+        int parts = partsFor(batch.size());
+        if (parts == 1) {
+            for (Transaction tx : batch) {
+                if (!check(tx, keys, revealed))
+                    return false;
+            }
+            return true;
+        }
+
+        AtomicBoolean failed = new AtomicBoolean(false);
+        List<Callable<Void>> tasks = new ArrayList<>(parts);
+        for (int p = 0; p < parts; p++) {
+            List<Transaction> part = slice(batch, p, parts);
+            tasks.add(() -> {
+                for (Transaction tx : part) {
+                    if (failed.get())
+                        return null;
+                    if (!check(tx, keys, revealed)) {
+                        failed.set(true);
+                        return null;
+                    }
+                }
+                return null;
+            });
+        }
+        runAll(tasks);
+        return !failed.get();
+    }
+
+    // Las del lote con firma valida, en el mismo orden (admision al pool: una mala no tira las demas).
+    // A diferencia de un bloque, en el pool cada tx vale sola: sin clave propia, la de su emisor tiene que
+    // estar confirmada en la cadena (la que la revela puede no minarse nunca)
+    public List<Transaction> filterValid(Collection<Transaction> txs, KeyRegistry keys) {
+        List<Transaction> batch = new ArrayList<>(txs);
+        Map<String, PublicKey> revealed = reveal(batch, keys);
+        boolean[] ok = new boolean[batch.size()];
+        // solo se reparten las posiciones que hay que verificar de verdad
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            Transaction tx = batch.get(i);
+            if (tx == null)
+                continue;
+            if (tx.getFromAddress() == null) {
+                ok[i] = true;
+            } else if (tx.getSenderPublicKey() == null && !keys.contains(tx.getFromAddress())) {
+                ok[i] = false;
+            } else if (!cache.contains(tx)) {
+                pending.add(i);
+            } else {
+                ok[i] = hasKey(tx, keys, revealed);
+            }
+        }
+        int parts = partsFor(pending.size());
+        List<Callable<Void>> tasks = new ArrayList<>(parts);
+        for (int p = 0; p < parts; p++) {
+            int from = p * pending.size() / parts;
+            int to = (p + 1) * pending.size() / parts;
+            tasks.add(() -> {
+                for (int k = from; k < to; k++) {
+                    int i = pending.get(k);
+                    ok[i] = check(batch.get(i), keys, revealed);
+                }
+                return null;
+            });
+        }
+        if (parts == 1) {
+            try {
+                tasks.get(0).call();
+            } catch (Exception e) {
+                throw new RuntimeException("Error verificando firmas", e);
+            }
+        } else {
+            runAll(tasks);
+        }
+
+        List<Transaction> valid = new ArrayList<>(batch.size());
+        for (int i = 0; i < ok.length; i++) {
+            if (ok[i])
+                valid.add(batch.get(i));
+        }
+        return valid;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public SignatureCache getCache() {
+        return cache;
+    }
+
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    // Antes de repartir: las claves que revela el lote y la cadena todavia no tiene, decodificadas una vez.
+    // Asi una tx del mismo emisor que viene en el mismo bloque (sin clave) la encuentra aunque la verifique
+    // otro worker primero. Es un mapa local del lote: no se registra nada
+    private static Map<String, PublicKey> reveal(Collection<Transaction> batch, KeyRegistry keys) {
+        Map<String, PublicKey> revealed = new HashMap<>();
+        for (Transaction tx : batch) {
+            if (tx == null || tx.getFromAddress() == null || tx.getSenderPublicKey() == null)
+                continue;
+            if (keys.contains(tx.getFromAddress()) || revealed.containsKey(tx.getFromAddress()))
+                continue;
+            try {
+                revealed.put(tx.getFromAddress(), KeyRegistry.decode(tx.getFromAddress(), tx.getSenderPublicKey()));
+            } catch (RuntimeException e) {
+                // clave que no corresponde: la tx va a fallar al verificarse
+            }
+        }
+        return revealed;
+    }
+
+    // la tx (ya verificada antes) tiene clave contra la cual valer: la propia, la de la cadena o la del lote
+    private static boolean hasKey(Transaction tx, KeyRegistry keys, Map<String, PublicKey> revealed) {
+        String from = tx.getFromAddress();
+        return tx.getSenderPublicKey() != null || keys.contains(from) || revealed.containsKey(from);
+    }
+
+    private int partsFor(int size) {
+        return Math.max(1, Math.min(workers, size / MIN_PER_WORKER));
+    }
+
+    private static List<Transaction> slice(List<Transaction> batch, int p, int parts) {
+        return batch.subList(p * batch.size() / parts, (p + 1) * batch.size() / parts);
+    }
+
+    private void runAll(List<Callable<Void>> tasks) {
+        try {
+            for (Future<Void> f : pool.invokeAll(tasks)) {
+                f.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Verificacion de firmas interrumpida", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error verificando firmas", e.getCause());
+        }
+    }
+}
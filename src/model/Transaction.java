@@ -1,22 +1,42 @@
 package model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.security.KeyPair;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicLong;
 
 import java.io.Serializable;
 
+// Los bytes que se hashean, se firman y viajan por la red salen siempre de TransactionCodec
 public class Transaction implements Serializable {
-    private static final long serialVersionUID = 1L;
-    public String fromAddress;
-    public String toAddress;
-    public float amount;
-    public float fee;
-    public String signature;
+    private static final long serialVersionUID = 3L;
+    // ultimo timestamp repartido en este proceso (ver nextTimestamp)
+    private static final AtomicLong lastTimestamp = new AtomicLong();
+    private String fromAddress;
+    private String toAddress;
+    private float amount;
+    private float fee;
+    // momento de creacion (ms). Va en la preimagen firmada: dos pagos con los mismos datos (o dos recompensas
+    // iguales al mismo minero) son transacciones distintas, con txid distinto
+    private long timestamp;
+    private String signature;
+    // clave publica del emisor (X.509 en base64). Va en las transacciones de una direccion hasta que una
+    // queda confirmada: despues la verificacion la saca del KeyRegistry de la cadena
+    private String senderPublicKey;
+    // Id de la transaccion (sha256 de la codificacion canonica, firma incluida). Se calcula una sola vez y
+    // solo se invalida si cambia un campo (los setters lo limpian); transient: se recalcula al deserializar
+    private transient volatile byte[] txId;
+    private transient volatile String txIdHex;
 
     public Transaction(String from, String to, float amount) {
         this.fromAddress = from;
         this.toAddress = to;
         this.amount = amount;
         this.fee = 0.0f;
+        this.timestamp = nextTimestamp();
         this.signature = null;
     }
 
@@ -25,30 +45,204 @@ public class Transaction implements Serializable {
         this.toAddress = to;
         this.amount = amount;
         this.fee = fee;
+        this.timestamp = nextTimestamp();
         this.signature = null;
     }
 
-    // CALCULA EL HASH
+    // la hora actual en ms, pero nunca repetida dentro del proceso: si se crean dos en el mismo ms
+    // la segunda toma el ms siguiente
+    private static long nextTimestamp() {
+        long now = System.currentTimeMillis();
+        return lastTimestamp.accumulateAndGet(now, (last, current) -> Math.max(last + 1, current));
+    }
+
+    // CALCULA EL HASH (el txid, cacheado)
     public String calculateHash() {
-        String data = (fromAddress == null ? "" : fromAddress) + (toAddress == null ? "" : toAddress) + amount + fee
-                + (signature == null ? "" : signature);
-        return new CryptoUtils().hash(data);
+        return getTxId();
+    }
+
+    // el mismo hash en crudo (hojas del merkle tree)
+    public byte[] calculateHashBytes() {
+        return txIdBytes().clone();
+    }
+
+    // id inmutable mientras no cambien los campos; sirve de clave para el pool y los indices
+    public String getTxId() {
+        String hex = txIdHex;
+        if (hex == null) {
+            hex = CryptoUtils.toHex(txIdBytes());
+            txIdHex = hex;
+        }
+        return hex;
+    }
+
+    private byte[] txIdBytes() {
+        byte[] id = txId;
+        if (id == null) {
+            id = computeHash();
+            txId = id;
+        }
+        return id;
+    }
+
+    private byte[] computeHash() {
+        return CryptoUtils.sha256(TransactionCodec.encode(this));
+    }
+
+    public byte[] encode() {
+        return TransactionCodec.encode(this);
+    }
+
+    // lo que se firma: todos los campos menos la firma
+    public byte[] getSigningPreimage() {
+        return TransactionCodec.signingPreimage(this);
+    }
+
+    // tamaño exacto de la transaccion codificada, para limitar el tamaño de los bloques
+    public int estimateSize() {
+        return TransactionCodec.encodedSize(this);
+    }
+
+    // fee por byte: lo que usa el minero para priorizar
+    public double getFeeRate() {
+        return fee / (double) Math.max(1, estimateSize());
     }
 
     // firma
     public void signTransaction(KeyPair keyPair) {
         if (keyPair == null)
             throw new IllegalArgumentException("KeyPair requerido para firmar");
-        CryptoUtils crypto = new CryptoUtils();
-        this.signature = crypto.sign(calculateHash(), keyPair);
+        setSignature(Base64.getEncoder().encodeToString(CryptoUtils.sign(getSigningPreimage(), keyPair.getPrivate())));
     }
 
-    // se fija si la transaccion es valida por las firmas
+    // Chequeos sin estado, los mismos en toda admision (pool, pipeline, Blockchain) y al validar bloques:
+    // montos razonables y firma presente (que la firma verifique es de SignatureVerifier, y el saldo de la cadena)
     public boolean isValid() {
+        if (!hasValidAmounts())
+            return false;
         if (this.fromAddress == null)
             return true; // recompensa
         if (this.signature == null)
             return false; // si no esta firmada se invalida
         return true;
     }
+
+    // monto finito y positivo, fee finito y no negativo
+    public boolean hasValidAmounts() {
+        return Float.isFinite(amount) && amount > 0 && Float.isFinite(fee) && fee >= 0;
+    }
+
+    public String getFromAddress() {
+        return fromAddress;
+    }
+
+    public void setFromAddress(String fromAddress) {
+        this.fromAddress = fromAddress;
+        invalidateTxId();
+    }
+
+    public String getToAddress() {
+        return toAddress;
+    }
+
+    public void setToAddress(String toAddress) {
+        this.toAddress = toAddress;
+        invalidateTxId();
+    }
+
+    public float getAmount() {
+        return amount;
+    }
+
+    public void setAmount(float amount) {
+        this.amount = amount;
+        invalidateTxId();
+    }
+
+    public float getFee() {
+        return fee;
+    }
+
+    public void setFee(float fee) {
+        this.fee = fee;
+        invalidateTxId();
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+        invalidateTxId();
+    }
+
+    public String getSenderPublicKey() {
+        return senderPublicKey;
+    }
+
+    public void setSenderPublicKey(String senderPublicKey) {
+        this.senderPublicKey = senderPublicKey == null ? null
+                : Base64.getEncoder().encodeToString(Base64.getDecoder().decode(senderPublicKey));
+        invalidateTxId();
+    }
+
+    public String getSignature() {
+        return signature;
+    }
+
+    // la firma es base64; se guarda normalizada para que codificar y decodificar den el mismo texto
+    public void setSignature(String signature) {
+        this.signature = signature == null ? null
+                : Base64.getEncoder().encodeToString(Base64.getDecoder().decode(signature));
+        invalidateTxId();
+    }
+
+    private void invalidateTxId() {
+        txId = null;
+        txIdHex = null;
+    }
+
+    // dos transacciones son la misma si tienen el mismo txid (ej. la local y la que llega de un peer en un bloque)
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof Transaction))
+            return false;
+        return Arrays.equals(txIdBytes(), ((Transaction) o).txIdBytes());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(txIdBytes());
+    }
+
+    // por la red viaja la codificacion canonica, no los campos sueltos de Java
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        byte[] data = encode();
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > TransactionCodec.MAX_ENCODED_SIZE)
+            throw new IOException("Largo de transaccion invalido: " + length);
+        byte[] data = new byte[length];
+        in.readFully(data);
+        Transaction decoded;
+        try {
+            decoded = TransactionCodec.decode(data);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Transaccion mal codificada", e);
+        }
+        this.fromAddress = decoded.fromAddress;
+        this.toAddress = decoded.toAddress;
+        this.amount = decoded.amount;
+        this.fee = decoded.fee;
+        this.timestamp = decoded.timestamp;
+        this.signature = decoded.signature;
+        this.senderPublicKey = decoded.senderPublicKey;
+    }
 }
@@ -0,0 +1,312 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import utils.Logger;
+
+// Admision asincronica de transacciones al mempool, en etapas conectadas por colas acotadas:
+//   entrada -> [prechequeo: decodificar, descartar repetidas, chequeos sin estado]
+//           -> lotes -> [verificacion de firmas en paralelo (SignatureVerifier)]
+//           -> lotes -> [saldo del emisor e insercion en el pool]
+// Cada etapa es un thread daemon; la de firmas reparte cada lote entre los workers del verificador.
+// Quien produce (el lector de un socket, el controlador) solo encola y sigue: una verificacion lenta
+// no frena la lectura de la red. Si la entrada esta llena:
+//   offer()  descarta la tx y lo cuenta (para la red: mejor perder un gossip que trabar el socket)
+//   submit() espera hasta `timeoutMs` (contrapresion para quien crea transacciones localmente)
+// Cuando se llenan las colas internas las etapas se bloquean entre si, asi la presion llega a la entrada.
+// Los avisos de `submit` (ej. el broadcast del controlador) corren en un thread aparte: un peer lento
+// no frena la insercion.
+public class TransactionAdmissionPipeline {
+    public static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    // lotes en vuelo entre etapas
+    private static final int BATCH_QUEUE_CAPACITY = 16;
+
+    // una tx a admitir (o sus bytes todavia sin decodificar) y a quien avisar si entra
+    private static final class Item {
+        final byte[] encoded;
+        Transaction tx;
+        final Consumer<Transaction> onAdmitted;
+
+        Item(byte[] encoded, Transaction tx, Consumer<Transaction> onAdmitted) {
+            this.encoded = encoded;
+            this.tx = tx;
+            this.onAdmitted = onAdmitted;
+        }
+    }
+
+    private final Blockchain blockchain;
+    private final SignatureVerifier verifier;
+    private final int batchSize;
+    private final Logger logger;
+
+    private final BlockingQueue<Item> inbound;
+    private final BlockingQueue<List<Item>> toVerify = new ArrayBlockingQueue<>(BATCH_QUEUE_CAPACITY);
+    private final BlockingQueue<List<Item>> toInsert = new ArrayBlockingQueue<>(BATCH_QUEUE_CAPACITY);
+    private final List<Thread> stages = new ArrayList<>();
+    private final ExecutorService callbacks;
+    private volatile boolean running = true;
+
+    // metricas
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder admitted = new LongAdder();
+
+    public TransactionAdmissionPipeline(Blockchain blockchain, SignatureVerifier verifier) {
+        this(blockchain, verifier, DEFAULT_QUEUE_CAPACITY, DEFAULT_BATCH_SIZE);
+    }
+
+    public TransactionAdmissionPipeline(Blockchain blockchain, SignatureVerifier verifier, int queueCapacity,
+            int batchSize) {
+        if (queueCapacity < 1 || batchSize < 1)
+            throw new IllegalArgumentException("Capacidad y lote tienen que ser positivos");
+        this.blockchain = blockchain;
+        this.verifier = verifier;
+        this.batchSize = batchSize;
+        this.inbound = new ArrayBlockingQueue<>(queueCapacity);
+        this.logger = Logger.getInstance();
+        this.callbacks = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "AdmissionCallbacks");
+            t.setDaemon(true);
+            return t;
+        });
+
+        startStage("AdmissionPrecheck", this::precheckLoop);
+        startStage("AdmissionVerify", this::verifyLoop);
+        startStage("AdmissionInsert", this::insertLoop);
+    }
+
+    // Para la red: encola sin esperar. false si la entrada esta llena y la tx se descarto
+    public boolean offer(Transaction tx) {
+        return enqueue(new Item(null, tx, null));
+    }
+
+    // Bytes crudos (TransactionCodec) tal como llegan: se decodifican en la etapa de prechequeo
+    public boolean offerEncoded(byte[] encoded) {
+        return enqueue(new Item(encoded, null, null));
+    }
+
+    // Para callers locales: espera lugar hasta timeoutMs. `onAdmitted` se llama (en el thread de avisos,
+    // en orden de admision) si la tx entra al pool. false si no hubo lugar a tiempo
+    public boolean submit(Transaction tx, Consumer<Transaction> onAdmitted, long timeoutMs) throws InterruptedException {
+        if (tx == null || !running)
+            return false;
+        submitted.increment();
+        if (inbound.offer(new Item(null, tx, onAdmitted), timeoutMs, TimeUnit.MILLISECONDS))
+            return true;
+        shed.increment();
+        return false;
+    }
+
+    public void close() {
+        running = false;
+        for (Thread t : stages) {
+            t.interrupt();
+        }
+        callbacks.shutdownNow();
+    }
+
+    // tx esperando en la entrada (para ver si la red esta mandando mas de lo que damos abasto)
+    public int getQueuedCount() {
+        return inbound.size();
+    }
+
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    // descartadas por entrada llena
+    public long getShedCount() {
+        return shed.sum();
+    }
+
+    public long getDuplicateCount() {
+        return duplicates.sum();
+    }
+
+    // invalidas: mal codificadas, recompensas, chequeos basicos, firma o saldo
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public long getAdmittedCount() {
+        return admitted.sum();
+    }
+
+    private boolean enqueue(Item item) {
+        if ((item.tx == null && item.encoded == null) || !running)
+            return false;
+        submitted.increment();
+        if (inbound.offer(item))
+            return true;
+        shed.increment();
+        return false;
+    }
+
+    private void startStage(String name, Runnable loop) {
+        Thread t = new Thread(() -> {
+            try {
+                loop.run();
+            } catch (RuntimeException e) {
+                logger.error("Etapa " + name + " detenida por error: " + e.getMessage());
+            }
+        }, name);
+        t.setDaemon(true);
+        stages.add(t);
+        t.start();
+    }
+
+    // etapa 1: decodificar, descartar repetidas y chequeos sin estado; arma lotes para las firmas
+    private void precheckLoop() {
+        List<Item> drained = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                drained.add(inbound.take());
+                inbound.drainTo(drained, batchSize - 1);
+                List<Item> batch = new ArrayList<>(drained.size());
+                // la misma tx dos veces en el lote (llego de dos peers casi juntos) tampoco pasa
+                Set<String> inBatch = new HashSet<>();
+                for (Item item : drained) {
+                    if (!precheck(item))
+                        continue;
+                    if (inBatch.add(item.tx.getTxId())) {
+                        batch.add(item);
+                    } else {
+                        duplicates.increment();
+                    }
+                }
+                drained.clear();
+                if (!batch.isEmpty())
+                    toVerify.put(batch);
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Error prechequeando transacciones: " + e.getMessage());
+                drained.clear();
+            }
+        }
+    }
+
+    private boolean precheck(Item item) {
+        if (item.tx == null) {
+            if (item.encoded.length > TransactionCodec.MAX_ENCODED_SIZE) {
+                rejected.increment();
+                return false;
+            }
+            try {
+                item.tx = TransactionCodec.decode(item.encoded);
+            } catch (IllegalArgumentException e) {
+                rejected.increment();
+                logger.debug("Transacción mal codificada descartada: " + e.getMessage());
+                return false;
+            }
+        }
+        Transaction tx = item.tx;
+        // antes que nada: con un campo de mas no se puede ni calcular el txid, y una recompensa
+        // (sin emisor ni firma) solo la pone el minero en su bloque
+        if (!TransactionCodec.isWithinLimits(tx) || Blockchain.isReward(tx)) {
+            rejected.increment();
+            return false;
+        }
+        if (blockchain.isDuplicate(tx)) {
+            duplicates.increment();
+            return false;
+        }
+        if (!tx.isValid()) {
+            rejected.increment();
+            logger.debug("Transacción inválida descartada: " + tx.getTxId());
+            return false;
+        }
+        return true;
+    }
+
+    // etapa 2: firmas del lote en paralelo
+    private void verifyLoop() {
+        while (running) {
+            try {
+                List<Item> batch = toVerify.take();
+                List<Transaction> txs = new ArrayList<>(batch.size());
+                for (Item item : batch) {
+                    txs.add(item.tx);
+                }
+                // filterValid devuelve las mismas instancias en el mismo orden
+                List<Transaction> valid = verifier.filterValid(txs, blockchain.getKeyRegistry());
+                List<Item> verified = new ArrayList<>(valid.size());
+                int v = 0;
+                for (Item item : batch) {
+                    if (v < valid.size() && valid.get(v) == item.tx) {
+                        verified.add(item);
+                        v++;
+                    }
+                }
+                rejected.add(batch.size() - verified.size());
+                if (!verified.isEmpty())
+                    toInsert.put(verified);
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Error verificando lote de transacciones: " + e.getMessage());
+            }
+        }
+    }
+
+    // etapa 3: insertar. El saldo del emisor (confirmado menos lo que ya tiene pendiente) lo chequea
+    // insertVerified, el mismo que usan los demas caminos de admision
+    private void insertLoop() {
+        while (running) {
+            try {
+                List<Item> batch = toInsert.take();
+                List<Transaction> txs = new ArrayList<>(batch.size());
+                for (Item item : batch) {
+                    txs.add(item.tx);
+                }
+                List<Transaction> inserted = blockchain.insertVerified(txs);
+                admitted.add(inserted.size());
+                int k = 0;
+                for (Item item : batch) {
+                    if (k < inserted.size() && inserted.get(k) == item.tx) {
+                        k++;
+                        if (item.onAdmitted != null)
+                            notifyAdmitted(item);
+                    } else if (blockchain.txPool.contains(item.tx.getTxId())) {
+                        // entro por otro camino mientras esta copia pasaba por las etapas
+                        duplicates.increment();
+                    } else {
+                        // sin saldo, o el pool esta lleno y paga poco
+                        rejected.increment();
+                    }
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Error insertando transacciones: " + e.getMessage());
+            }
+        }
+    }
+
+    private void notifyAdmitted(Item item) {
+        try {
+            callbacks.execute(() -> {
+                try {
+                    item.onAdmitted.accept(item.tx);
+                } catch (RuntimeException e) {
+                    logger.error("Error avisando admision de " + item.tx.getTxId() + ": " + e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // pipeline cerrado: la tx ya esta en el pool, solo se pierde el aviso
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package model;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Codificacion binaria canonica de una transaccion. Es la unica forma en que se hashea, se firma,
+// se arman las hojas del merkle y se manda por la red, asi todos los nodos ven los mismos bytes.
+// Layout (big-endian):
+//   [1]      version
+//   [2 + n]  fromAddress: largo u16 (0xFFFF = null, recompensa) + bytes UTF-8
+//   [2 + n]  toAddress:   idem
+//   [4]      amount (bits IEEE-754, no el texto del float)
+//   [4]      fee
+//   [8]      timestamp de creacion (ms): hace unica a la tx aunque se repitan los demas campos
+//   [2 + n]  clave publica del emisor (X.509 en crudo), 0xFFFF si no se revela en esta tx
+//   [2 + n]  firma en crudo (el base64 decodificado), 0xFFFF si no esta firmada
+// La preimagen que se firma es lo mismo sin el ultimo campo: la firma no se firma a si misma.
+public final class TransactionCodec {
+    public static final byte VERSION = 3;
+
+    private static final int NULL_LENGTH = 0xFFFF;
+    // tope de cada campo de largo variable: sobra para direcciones, claves X.509 (RSA 4096 ~550 bytes) y firmas
+    public static final int MAX_FIELD_LENGTH = 4096;
+    // from, to, clave publica y firma
+    private static final int VARIABLE_FIELDS = 4;
+    // version, amount, fee y timestamp
+    private static final int FIXED_BYTES = 1 + 2 * Float.BYTES + Long.BYTES;
+    // ninguna transaccion codifica a menos que esto (los cuatro campos variables nulos)
+    public static final int MIN_ENCODED_SIZE = FIXED_BYTES + VARIABLE_FIELDS * 2;
+    // ninguna transaccion valida codifica a mas que esto (~16 KB). Es el tope de la red, la admision y el bloque
+    public static final int MAX_ENCODED_SIZE = FIXED_BYTES + VARIABLE_FIELDS * (2 + MAX_FIELD_LENGTH);
+
+    private TransactionCodec() {
+    }
+
+    // bytes completos (con firma): txid y transporte
+    public static byte[] encode(Transaction tx) {
+        return write(tx, true);
+    }
+
+    // bytes sin la firma: lo que firma el emisor
+    public static byte[] signingPreimage(Transaction tx) {
+        return write(tx, false);
+    }
+
+    // largo exacto de encode(tx), sin armar el array
+    public static int encodedSize(Transaction tx) {
+        return FIXED_BYTES + fieldSize(utf8(tx.getFromAddress())) + fieldSize(utf8(tx.getToAddress()))
+                + fieldSize(base64(tx.getSenderPublicKey())) + fieldSize(base64(tx.getSignature()));
+    }
+
+    // true si ningun campo pasa de MAX_FIELD_LENGTH, o sea si encode(tx) no va a tirar excepcion
+    public static boolean isWithinLimits(Transaction tx) {
+        return fitsField(utf8(tx.getFromAddress())) && fitsField(utf8(tx.getToAddress()))
+                && fitsField(base64(tx.getSenderPublicKey())) && fitsField(base64(tx.getSignature()));
+    }
+
+    public static Transaction decode(byte[] data) {
+        if (data.length > MAX_ENCODED_SIZE)
+            throw new IllegalArgumentException("Transaccion demasiado grande: " + data.length + " bytes");
+        try {
+            ByteBuffer in = ByteBuffer.wrap(data);
+            byte version = in.get();
+            if (version != VERSION)
+                throw new IllegalArgumentException("Version de transaccion desconocida: " + version);
+            String from = readString(in);
+            String to = readString(in);
+            float amount = Float.intBitsToFloat(in.getInt());
+            float fee = Float.intBitsToFloat(in.getInt());
+            long timestamp = in.getLong();
+            byte[] publicKey = readField(in);
+            byte[] signature = readField(in);
+            if (in.hasRemaining())
+                throw new IllegalArgumentException("Bytes de mas al final de la transaccion");
+            Transaction tx = new Transaction(from, to, amount, fee);
+            tx.setTimestamp(timestamp);
+            if (publicKey != null)
+                tx.setSenderPublicKey(Base64.getEncoder().encodeToString(publicKey));
+            if (signature != null)
+                tx.setSignature(Base64.getEncoder().encodeToString(signature));
+            return tx;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Transaccion truncada", e);
+        }
+    }
+
+    private static byte[] write(Transaction tx, boolean withSignature) {
+        byte[] from = utf8(tx.getFromAddress());
+        byte[] to = utf8(tx.getToAddress());
+        byte[] publicKey = base64(tx.getSenderPublicKey());
+        byte[] signature = withSignature ? base64(tx.getSignature()) : null;
+        int size = FIXED_BYTES + fieldSize(from) + fieldSize(to) + fieldSize(publicKey)
+                + (withSignature ? fieldSize(signature) : 0);
+
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.put(VERSION);
+        writeField(out, from);
+        writeField(out, to);
+        out.putInt(Float.floatToIntBits(tx.getAmount()));
+        out.putInt(Float.floatToIntBits(tx.getFee()));
+        out.putLong(tx.getTimestamp());
+        writeField(out, publicKey);
+        if (withSignature)
+            writeField(out, signature);
+        return out.array();
+    }
+
+    private static byte[] utf8(String s) {
+        return s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] base64(String value) {
+        return value == null ? null : Base64.getDecoder().decode(value);
+    }
+
+    private static int fieldSize(byte[] field) {
+        return 2 + (field == null ? 0 : field.length);
+    }
+
+    private static boolean fitsField(byte[] field) {
+        return field == null || field.length <= MAX_FIELD_LENGTH;
+    }
+
+    private static void writeField(ByteBuffer out, byte[] field) {
+        if (field == null) {
+            out.putShort((short) NULL_LENGTH);
+            return;
+        }
+        if (field.length > MAX_FIELD_LENGTH)
+            throw new IllegalArgumentException("Campo de transaccion demasiado largo: " + field.length + " bytes");
+        out.putShort((short) field.length);
+        out.put(field);
+    }
+
+    private static byte[] readField(ByteBuffer in) {
+        int length = in.getShort() & 0xFFFF;
+        if (length == NULL_LENGTH)
+            return null;
+        if (length > MAX_FIELD_LENGTH)
+            throw new IllegalArgumentException("Campo de transaccion demasiado largo: " + length + " bytes");
+        byte[] field = new byte[length];
+        in.get(field);
+        return field;
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] field = readField(in);
+        return field == null ? null : new String(field, StandardCharsets.UTF_8);
+    }
+}
@@ -1,53 +1,433 @@
 package model;
+import java.util.AbstractCollection;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.lang.ref.WeakReference;
+import utils.Logger;
 
-public class TransactionPool {
-    // la transaccion entra como pendiente para depsues ser valida
-    private final List<Transaction> pending;
+// Mempool indexado por txid sobre mapas concurrentes, sin un lock global:
+//  - byId: txid -> entrada, para admitir sin duplicados y sacar en O(1) cada tx confirmada
+//  - byArrival: orden de llegada -> tx, para recorrer en orden sin copiar ni bloquear a nadie
+//  - byFee: de menor a mayor fee por byte, para saber a quien echar cuando se llena
+// La validez se chequea al entrar; leer el pool ya no re-valida todo.
+// Los recorridos son "weakly consistent": ven un estado valido aunque entren o salgan tx mientras tanto.
+// Entrar, salir y vencer no toman lock: byId.putIfAbsent/remove es atomico por txid (el mapa ya esta
+// particionado por clave) y el presupuesto se reserva con CAS sobre contadores atomicos, asi que nunca se
+// pasa. Solo expulsar toma un lock (evictionLock), para que dos tx que no entran no elijan a las mismas
+// victimas; con el pool por debajo del presupuesto nadie lo toca.
+//
+// Tiene presupuesto de entradas y de bytes (tamaño codificado): lleno, una tx nueva solo entra si paga
+// mas por byte que las que hay que expulsar para hacerle lugar. Un thread daemon (uno solo para todos los
+// pools del proceso) ademas vence las que llevan mas de `ttlMs` esperando. Nada tiene trato especial:
+// todo lo que esta aca puede haber llegado de la red (las recompensas no entran).
+// Con un flood de un peer el pool queda acotado y se quedan las que mas pagan.
+public class TransactionPool implements AutoCloseable {
+    public static final int DEFAULT_MAX_ENTRIES = 50_000;
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+    public static final long DEFAULT_TTL_MS = TimeUnit.HOURS.toMillis(1);
+    public static final long DEFAULT_SWEEP_INTERVAL_MS = TimeUnit.SECONDS.toMillis(30);
+
+    // una tx admitida con su numero de llegada, tamaño y fee por byte (se calculan una vez)
+    private static final class Entry {
+        final Transaction tx;
+        final long seq;
+        final int size;
+        final double feeRate;
+        final long arrivalMs;
+
+        Entry(Transaction tx, long seq, long arrivalMs) {
+            this.tx = tx;
+            this.seq = seq;
+            this.size = tx.estimateSize();
+            this.feeRate = tx.getFeeRate();
+            this.arrivalMs = arrivalMs;
+        }
+    }
+
+    // la mas barata primero; a igual fee, la mas nueva (se respeta a las que llegaron antes)
+    private static final Comparator<Entry> CHEAPEST_FIRST = Comparator
+            .comparingDouble((Entry e) -> e.feeRate)
+            .thenComparing(e -> -e.seq);
+
+    private final ConcurrentMap<String, Entry> byId = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<Long, Entry> byArrival = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListSet<Entry> byFee = new ConcurrentSkipListSet<>(CHEAPEST_FIRST);
+    private final AtomicLong nextSeq = new AtomicLong();
+    // presupuesto ocupado: se reserva antes de entrar a byId y se libera al salir
+    private final AtomicInteger count = new AtomicInteger();
+    private final AtomicLong bytes = new AtomicLong();
+    // solo para expulsar
+    private final Object evictionLock = new Object();
+
+    private volatile int maxEntries = DEFAULT_MAX_ENTRIES;
+    private volatile long maxBytes = DEFAULT_MAX_BYTES;
+    private volatile long ttlMs = DEFAULT_TTL_MS;
+
+    // metricas para dimensionar el pool
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder rejectedFull = new LongAdder();
+
+    // se avisa cuando salen tx por expulsion o vencimiento (ej. para rearmar templates de minado)
+    private volatile Runnable onEvicted;
+    private final ScheduledFuture<?> sweep;
+    private final Logger logger = Logger.getInstance();
+
+    // un thread compartido por todos los pools; se crea con el primero
+    private static ScheduledExecutorService sweeper;
 
     public TransactionPool() {
+        this(DEFAULT_SWEEP_INTERVAL_MS);
+    }
 
-        this.pending = new ArrayList<>();
+    public TransactionPool(long sweepIntervalMs) {
+        Sweep task = new Sweep(this);
+        this.sweep = sweeper().scheduleWithFixedDelay(task, sweepIntervalMs, sweepIntervalMs,
+                TimeUnit.MILLISECONDS);
+        task.future = sweep;
     }
 
-    // añade la transaccion pendiente como valida ya
-    public synchronized void addTransaction(Transaction trans) {
-        if (trans == null) return;
-        if (!trans.isValid()) return;
-        this.pending.add(trans);
+    // El barrido agarra al pool con una referencia debil: un pool que nadie cerro y ya no se usa se puede
+    // recolectar igual, y su tarea se cancela sola en la siguiente pasada
+    private static final class Sweep implements Runnable {
+        private final WeakReference<TransactionPool> pool;
+        volatile ScheduledFuture<?> future;
+
+        Sweep(TransactionPool pool) {
+            this.pool = new WeakReference<>(pool);
+        }
+
+        @Override
+        public void run() {
+            TransactionPool p = pool.get();
+            if (p != null) {
+                p.sweepSafely();
+                return;
+            }
+            ScheduledFuture<?> f = future;
+            if (f != null)
+                f.cancel(false);
+        }
     }
 
-    // trae las transacciones validas del pool en una lista
-    public synchronized List<Transaction> getValidTransactions() {
-        List<Transaction> copy = new ArrayList<>();
-        for (Transaction trans : this.pending) {
-            if (trans != null && trans.isValid()) copy.add(trans);
+    private static synchronized ScheduledExecutorService sweeper() {
+        if (sweeper == null) {
+            sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "MempoolSweeper");
+                t.setDaemon(true);
+                return t;
+            });
         }
-        return copy;
+        return sweeper;
+    }
+
+    // añade la transaccion pendiente como valida ya.
+    // false si es invalida, es una recompensa (sin emisor: solo la pone el minero en su bloque, por el pool
+    // cualquiera crearia monedas), ya estaba o el pool esta lleno y no paga mas que las que habria que expulsar
+    public boolean addTransaction(Transaction trans) {
+        if (trans == null) return false;
+        if (trans.getFromAddress() == null) return false;
+        if (!trans.isValid()) return false;
+        String id = trans.getTxId();
+        if (byId.containsKey(id))
+            return false;
+        // el tamaño (codificar la tx) se calcula antes de reservar nada
+        Entry entry = new Entry(trans, nextSeq.getAndIncrement(), System.currentTimeMillis());
+        if (entry.size > maxBytes) {
+            rejectedFull.increment();
+            return false;
+        }
+        // camino comun: hay lugar y entra sin lock
+        if (reserve(entry))
+            return insert(entry);
+        // lleno: expulsar las mas baratas que ella, de a una tx por vez
+        int evictedNow = 0;
+        boolean inserted = false;
+        synchronized (evictionLock) {
+            while (!byId.containsKey(id)) {
+                List<Entry> victims = victimsFor(entry);
+                if (victims == null) {
+                    rejectedFull.increment();
+                    break;
+                }
+                for (Entry victim : victims) {
+                    if (discard(victim)) {
+                        evicted.increment();
+                        evictedNow++;
+                        logger.debug("Mempool lleno: expulsada tx " + victim.tx.getTxId());
+                    }
+                }
+                // si otra la gano sin lock al lugar liberado se vuelve a planear
+                if (reserve(entry)) {
+                    inserted = insert(entry);
+                    break;
+                }
+            }
+        }
+        if (evictedNow > 0)
+            fireEvicted();
+        return inserted;
+    }
+
+    // trae las transacciones validas del pool en una lista (en orden de llegada)
+    public List<Transaction> getValidTransactions() {
+        return getPending();
     }
 
-    // borra las transacciones pendientes que ya validamos con lo de addtransaction
-    public synchronized void removeTransactions(List<Transaction> transaction) {
+    // borra las transacciones que entraron en un bloque: O(log n) por cada una
+    public void removeTransactions(Collection<Transaction> transaction) {
         if (transaction == null || transaction.isEmpty()) return;
-        this.pending.removeAll(transaction);
+        for (Transaction tx : transaction) {
+            if (tx != null)
+                remove(tx.getTxId());
+        }
+    }
+
+    public Transaction remove(String txId) {
+        Entry entry = byId.get(txId);
+        if (entry == null || !discard(entry))
+            return null;
+        return entry.tx;
+    }
+
+    public boolean contains(String txId) {
+        return byId.containsKey(txId);
+    }
+
+    // la tx con ese id, o null
+    public Transaction get(String txId) {
+        Entry entry = byId.get(txId);
+        return entry == null ? null : entry.tx;
+    }
+
+    public int size() {
+        return count.get();
+    }
+
+    // bytes codificados de todo lo que hay en el pool
+    public long getBytes() {
+        return bytes.get();
     }
 
     // deletea el pool completo de cosas
-    public synchronized void clear() {
-        this.pending.clear();
+    public void clear() {
+        for (Entry e : byId.values()) {
+            discard(e);
+        }
     }
 
     // trae todas las pendientes
     // no es del to do necesario pero sirve para ver si quedan colgadas
-    public synchronized List<Transaction> getPending() {
-        return new ArrayList<>(this.pending);
+    public List<Transaction> getPending() {
+        List<Transaction> copy = new ArrayList<>(byArrival.size());
+        for (Entry e : byArrival.values()) {
+            copy.add(e.tx);
+        }
+        return copy;
     }
-}
 
+    // vista de solo lectura en orden de llegada, sin copiar
+    public Collection<Transaction> view() {
+        return new AbstractCollection<Transaction>() {
+            @Override
+            public Iterator<Transaction> iterator() {
+                Iterator<Entry> it = byArrival.values().iterator();
+                return new Iterator<Transaction>() {
+                    @Override
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    @Override
+                    public Transaction next() {
+                        return it.next().tx;
+                    }
+                };
+            }
 
-/*
-* tuvimos que usar este atributo de synchronized porque sino
-se sobreescribirian los datos de manera incorrecta por la cantidad de entradas
-* la que se acostumran las blockchain/
- */
\ No newline at end of file
+            @Override
+            public int size() {
+                return byArrival.size();
+            }
+        };
+    }
+
+    // Vence las que llevan mas de ttlMs en el pool. Recorre desde la mas vieja y corta en la primera
+    // que todavia no vencio (el orden de llegada es orden de tiempo). Devuelve cuantas saco
+    public int expireOld() {
+        long cutoff = System.currentTimeMillis() - ttlMs;
+        int removed = 0;
+        for (Entry e : byArrival.values()) {
+            if (e.arrivalMs > cutoff)
+                break;
+            if (discard(e)) {
+                expired.increment();
+                removed++;
+            }
+        }
+        if (removed > 0)
+            fireEvicted();
+        return removed;
+    }
+
+    // deja de vencer transacciones (el thread compartido sigue para los demas pools)
+    @Override
+    public void close() {
+        sweep.cancel(false);
+    }
+
+    public void setOnEvicted(Runnable onEvicted) {
+        this.onEvicted = onEvicted;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        if (maxEntries > 0) {
+            this.maxEntries = maxEntries;
+        }
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        if (maxBytes > 0) {
+            this.maxBytes = maxBytes;
+        }
+    }
+
+    public long getTtlMs() {
+        return ttlMs;
+    }
+
+    public void setTtlMs(long ttlMs) {
+        if (ttlMs > 0) {
+            this.ttlMs = ttlMs;
+        }
+    }
+
+    // expulsadas por fee para hacer lugar
+    public long getEvictedCount() {
+        return evicted.sum();
+    }
+
+    // vencidas por TTL
+    public long getExpiredCount() {
+        return expired.sum();
+    }
+
+    // rechazadas al entrar porque el pool estaba lleno y pagaban menos que la peor
+    public long getRejectedCount() {
+        return rejectedFull.sum();
+    }
+
+    // Con evictionLock tomado: las mas baratas que hay que sacar para que `entry` entre en el presupuesto
+    // (vacia si ya entra), o null si no alcanza con expulsar las que pagan menos que ella.
+    // Primero se planea y despues se expulsa: si la nueva no entra, no se saca nada
+    private List<Entry> victimsFor(Entry entry) {
+        int entries = count.get() + 1;
+        long total = bytes.get() + entry.size;
+        List<Entry> victims = new ArrayList<>();
+        Iterator<Entry> cheapestFirst = byFee.iterator();
+        while (entries > maxEntries || total > maxBytes) {
+            if (!cheapestFirst.hasNext())
+                return null;
+            Entry victim = cheapestFirst.next();
+            if (victim.feeRate >= entry.feeRate)
+                return null;
+            victims.add(victim);
+            entries--;
+            total -= victim.size;
+        }
+        return victims;
+    }
+
+    // reserva lugar para `entry` si entra en el presupuesto; nunca lo pasa aunque reserven varios a la vez
+    private boolean reserve(Entry entry) {
+        int n;
+        do {
+            n = count.get();
+            if (n >= maxEntries)
+                return false;
+        } while (!count.compareAndSet(n, n + 1));
+        long b;
+        do {
+            b = bytes.get();
+            if (b + entry.size > maxBytes) {
+                count.decrementAndGet();
+                return false;
+            }
+        } while (!bytes.compareAndSet(b, b + entry.size));
+        return true;
+    }
+
+    private void release(Entry entry) {
+        count.decrementAndGet();
+        bytes.addAndGet(-entry.size);
+    }
+
+    // con el lugar ya reservado. byId decide: si la misma tx entro por otro thread se devuelve el lugar.
+    // Si alguien la saco entre el put y el indexado, se deshace el indexado (discard ya libero el lugar)
+    private boolean insert(Entry entry) {
+        if (byId.putIfAbsent(entry.tx.getTxId(), entry) != null) {
+            release(entry);
+            return false;
+        }
+        byArrival.put(entry.seq, entry);
+        byFee.add(entry);
+        if (byId.get(entry.tx.getTxId()) != entry)
+            unindex(entry);
+        return true;
+    }
+
+    // saca `entry` si sigue en el pool; solo el que la saca de byId libera su lugar
+    private boolean discard(Entry entry) {
+        if (!byId.remove(entry.tx.getTxId(), entry))
+            return false;
+        unindex(entry);
+        release(entry);
+        return true;
+    }
+
+    private void unindex(Entry entry) {
+        byArrival.remove(entry.seq, entry);
+        byFee.remove(entry);
+    }
+
+    private void fireEvicted() {
+        Runnable listener = onEvicted;
+        if (listener != null)
+            listener.run();
+    }
+
+    private void sweepSafely() {
+        try {
+            int removed = expireOld();
+            if (removed > 0)
+                logger.info("Mempool: " + removed + " transacciones vencidas (total vencidas " + getExpiredCount()
+                        + ", expulsadas " + getEvictedCount() + ", rechazadas " + getRejectedCount() + ")");
+        } catch (RuntimeException e) {
+            // que un error no mate al thread programado
+            logger.error("Error venciendo transacciones del mempool: " + e.getMessage());
+        }
+    }
+}
@@ -118,7 +118,8 @@ public class P2PNetworkNode implements INetworkNode {
 
     @Override
     public void broadcastTransaction(Transaction tx) {
-        NetworkMessage msg = new NetworkMessage(NetworkMessage.Type.TRANSACTION, tx);
+        // viaja con TransactionCodec (byte[]): quien lo recibe lo decodifica en el pipeline, no en su socket
+        NetworkMessage msg = new NetworkMessage(NetworkMessage.Type.TRANSACTION, tx.encode());
         broadcast(msg);
     }
 
@@ -156,31 +157,34 @@ public class P2PNetworkNode implements INetworkNode {
 
         switch (msg.getType()) {
             case TRANSACTION:
-                Transaction tx = (Transaction) msg.getPayload();
-
-                try {
-                    blockchain.addTransactionToPool(tx);
-                    logger.info("Transacción recibida y añadida al pool.");
-                } catch (Exception e) {
-                    logger.warning("Transacción rechazada: " + e.getMessage());
+                // se decodifica, valida y verifica en el pipeline de admision, no en este thread (el que lee el socket).
+                // Los bytes crudos son lo normal (broadcastTransaction); un Transaction viene de un peer viejo
+                Object payload = msg.getPayload();
+                boolean queued;
+                if (payload instanceof byte[]) {
+                    queued = blockchain.getAdmissionPipeline().offerEncoded((byte[]) payload);
+                } else if (payload instanceof Transaction) {
+                    queued = blockchain.getAdmissionPipeline().offer((Transaction) payload);
+                } else {
+                    logger.warning("Transacción recibida con payload inválido de " + from);
+                    break;
+                }
+                if (queued) {
+                    logger.debug("Transacción recibida, encolada para admisión.");
+                } else {
+                    logger.warning("Admisión saturada: transacción recibida descartada.");
                 }
                 break;
 
             case BLOCK:
                 Block block = (Block) msg.getPayload();
                 if (block.getPrevHash().equals(blockchain.getLatestBlock().getHash())) {
-                    // Agregar el bloque directamente a la cadena sin hacer broadcast
-                    // para evitar loops infinitos (el nodo que minó ya hizo el broadcast)
-                    List<Block> chain = blockchain.getChain();
-
-                    // Validar estructura del bloque antes de agregarlo
-                    if (model.BlockValidator.validateBlockStructure(block)) {
-                        chain.add(block);
+                    // Agregar el bloque a la cadena sin hacer broadcast
+                    // para evitar loops infinitos (el nodo que minó ya hizo el broadcast).
+                    // acceptBlock valida la estructura, saca del pool las transacciones incluidas
+                    // y avisa a los mineros locales para que abandonen su template viejo
+                    if (blockchain.acceptBlock(block)) {
                         logger.info("Bloque recibido y añadido a la cadena: #" + block.getIndex());
-
-                        // Remover transacciones del pool que ya están en el bloque
-                        blockchain.txPool.removeTransactions(block.getTransactions());
-                        blockchain.pendingTransactions.removeAll(block.getTransactions());
                     } else {
                         logger.warning("Bloque recibido tiene estructura inválida.");
                     }
@@ -10,7 +10,7 @@ public class GUIUtils {
     }
 
     public static String getSenderLabel(Transaction tx) {
-        return tx.fromAddress != null ? tx.fromAddress : "SISTEMA";
+        return tx.getFromAddress() != null ? tx.getFromAddress() : "SISTEMA";
     }
 
     public static String getSenderLabelTruncated(Transaction tx, int len) {
@@ -19,6 +19,6 @@ public class GUIUtils {
     }
 
     public static String getReceiverLabelTruncated(Transaction tx, int len) {
-        return truncate(tx.toAddress, len);
+        return truncate(tx.getToAddress(), len);
     }
 }
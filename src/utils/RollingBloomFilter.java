@@ -0,0 +1,88 @@
+package utils;
+
+import java.util.Arrays;
+
+// Filtro de Bloom "rodante" para recordar los ultimos N elementos con memoria fija.
+// Tiene dos generaciones: se inserta en la actual y cuando llega a `perGeneration` elementos la
+// anterior se descarta y la actual pasa a ser la anterior. Asi siempre recuerda al menos los ultimos
+// `perGeneration` (y a lo sumo 2x), y lo mas viejo se olvida solo.
+// Puede dar falsos positivos (con probabilidad ~falsePositiveRate), nunca falsos negativos dentro de la ventana.
+// Las claves tienen que ser hashes (ej. un txid): los indices salen directo de sus bytes, sin rehashear.
+public class RollingBloomFilter {
+    private final int perGeneration;
+    private final int bits;
+    private final int hashes;
+
+    private long[] current;
+    private long[] previous;
+    private int currentCount;
+
+    public RollingBloomFilter(int perGeneration, double falsePositiveRate) {
+        if (perGeneration < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1)
+            throw new IllegalArgumentException("Parametros de filtro invalidos");
+        this.perGeneration = perGeneration;
+        // tamaño y cantidad de hashes optimos: m = -n ln p / (ln 2)^2, k = m/n ln 2
+        double ln2 = Math.log(2);
+        long m = (long) Math.ceil(-perGeneration * Math.log(falsePositiveRate) / (ln2 * ln2));
+        this.bits = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64, m));
+        this.hashes = Math.max(1, (int) Math.round((double) bits / perGeneration * ln2));
+        this.current = new long[(bits + 63) / 64];
+        this.previous = new long[(bits + 63) / 64];
+    }
+
+    public synchronized void add(byte[] key) {
+        if (currentCount >= perGeneration) {
+            long[] recycled = previous;
+            Arrays.fill(recycled, 0L);
+            previous = current;
+            current = recycled;
+            currentCount = 0;
+        }
+        long h1 = word(key, 0);
+        long h2 = word(key, 8) | 1;
+        for (int i = 0; i < hashes; i++) {
+            int bit = index(h1 + i * h2);
+            current[bit >>> 6] |= 1L << bit;
+        }
+        currentCount++;
+    }
+
+    public synchronized boolean mightContain(byte[] key) {
+        long h1 = word(key, 0);
+        long h2 = word(key, 8) | 1;
+        return contains(current, h1, h2) || contains(previous, h1, h2);
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(current, 0L);
+        Arrays.fill(previous, 0L);
+        currentCount = 0;
+    }
+
+    public int getPerGeneration() {
+        return perGeneration;
+    }
+
+    private boolean contains(long[] generation, long h1, long h2) {
+        for (int i = 0; i < hashes; i++) {
+            int bit = index(h1 + i * h2);
+            if ((generation[bit >>> 6] & (1L << bit)) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    private int index(long hash) {
+        return (int) Long.remainderUnsigned(hash, bits);
+    }
+
+    // 8 bytes big-endian desde `offset` (con claves cortas se completa con ceros)
+    private static long word(byte[] key, int offset) {
+        long w = 0;
+        for (int i = 0; i < 8; i++) {
+            int pos = offset + i;
+            w = (w << 8) | (pos < key.length ? (key[pos] & 0xFF) : 0);
+        }
+        return w;
+    }
+}
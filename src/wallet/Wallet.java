@@ -70,6 +70,10 @@ public class Wallet extends WalletBase implements IWallet {
 		}
 
 		Transaction tx = new Transaction(this.getAddress(), to, amt);
+		// la clave publica viaja hasta que una tx que la lleva quede confirmada en la cadena
+		if (bc == null || !bc.getKeyRegistry().contains(this.getAddress())) {
+			tx.setSenderPublicKey(this.getPublicKey());
+		}
 
 		// firma la transaccion con el keypar de la wallet
 		try {
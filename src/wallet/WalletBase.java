@@ -4,44 +4,52 @@ import java.security.KeyPair;
 import java.security.PublicKey;
 import java.util.Base64;
 import model.CryptoUtils;
+import model.KeyRegistry;
 
 public abstract class WalletBase {
 
+	private static final CryptoUtils crypto = new CryptoUtils();
+
 	private KeyPair privateKey;
 	// stringuear la public key
 	private String publicKey;
+	// direccion corta: hash de la clave publica (ver KeyRegistry)
+	private String address;
 
 	public WalletBase() {
 		// creacion de la wallet en si mediante la creacion de claves
-		CryptoUtils cu = new CryptoUtils();
-		this.privateKey = cu.generateKeyPair();
+		this.privateKey = crypto.generateKeyPair();
 		PublicKey pk = this.privateKey.getPublic();
 		this.publicKey = Base64.getEncoder().encodeToString(pk.getEncoded());
+		this.address = KeyRegistry.addressOf(pk);
 	}
 
 	public WalletBase(String seed) {
-		CryptoUtils cu = new CryptoUtils();
-		this.privateKey = cu.generateKeyPair(seed);
+		this.privateKey = crypto.generateKeyPair(seed);
 		PublicKey pk = this.privateKey.getPublic();
 		this.publicKey = Base64.getEncoder().encodeToString(pk.getEncoded());
+		this.address = KeyRegistry.addressOf(pk);
 	}
 
-	// da la clave publica
+	// da la direccion (hash corto de la clave publica)
 	public String getAddress() {
+		return address;
+	}
+
+	// la clave publica completa en base64; viaja en las transacciones de la wallet hasta que la cadena la conoce
+	public String getPublicKey() {
 		return publicKey;
 	}
 
 	// firma y devuelve la firma
 	public String signData(String data) {
-		CryptoUtils cu = new CryptoUtils();
-		return cu.sign(data, privateKey);
+		return crypto.sign(data, privateKey);
 	}
 
 	// ver si coinciden las firmas
 	public boolean verify(String sig, String data) {
-		CryptoUtils cu = new CryptoUtils();
 		// CryptoUtils.verify toma (data, signature, KeyPair)
-		return cu.verify(data, sig, privateKey);
+		return crypto.verify(data, sig, privateKey);
 	}
 
 	// hicimos esto para poder mostrar el keypar mas tarde en las sublcases